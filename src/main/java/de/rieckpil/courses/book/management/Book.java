@@ -1,13 +1,23 @@
 package de.rieckpil.courses.book.management;
 
+import java.time.Instant;
 import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
 @Table(name = "books")
+@EntityListeners(BookEntityListener.class)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
+@NaturalIdCache(region = "books-natural-ids")
+// a metadata refresh mostly touches last_synced_at only, don't rewrite every column for it
+@DynamicUpdate
 public class Book {
 
   @Id
@@ -32,6 +42,10 @@ public class Book {
 
   private Long pages;
 
+  @JsonIgnore
+  @Column(nullable = false)
+  private Instant lastSyncedAt = Instant.now();
+
   public Long getId() {
     return id;
   }
@@ -104,6 +118,14 @@ public class Book {
     this.pages = pages;
   }
 
+  public Instant getLastSyncedAt() {
+    return lastSyncedAt;
+  }
+
+  public void setLastSyncedAt(Instant lastSyncedAt) {
+    this.lastSyncedAt = lastSyncedAt;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -0,0 +1,15 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface BookBatchRepository {
+  boolean insertIfAbsent(Book book);
+
+  List<Book> insertAllIfAbsent(List<Book> books);
+
+  void markSynced(Collection<Long> ids, Instant syncedAt);
+
+  List<Long> claimStaleBooks(Instant staleBefore, Instant claimedUntil, int limit);
+}
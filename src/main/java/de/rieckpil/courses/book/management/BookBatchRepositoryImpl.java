@@ -0,0 +1,152 @@
+package de.rieckpil.courses.book.management;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+class BookBatchRepositoryImpl implements BookBatchRepository {
+
+  private static final String INSERT_BOOK_IF_ABSENT =
+      "INSERT INTO books (title, isbn, author, genre, thumbnail_url, description, publisher, pages,"
+          + " last_synced_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (isbn) DO NOTHING";
+
+  private static final String MARK_BOOKS_SYNCED =
+      "UPDATE books SET last_synced_at = :syncedAt WHERE id IN (:ids)";
+
+  // ordered like books_last_synced_at_idx, rows claimed by a concurrent refresher are skipped
+  private static final String CLAIM_STALE_BOOKS =
+      "UPDATE books SET last_synced_at = :claimedUntil WHERE id IN (SELECT id FROM books"
+          + " WHERE last_synced_at < :staleBefore ORDER BY last_synced_at, id LIMIT :limit"
+          + " FOR UPDATE SKIP LOCKED) RETURNING id";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+  private final EntityManagerFactory entityManagerFactory;
+  private final ApplicationEventPublisher applicationEventPublisher;
+
+  BookBatchRepositoryImpl(
+      JdbcTemplate jdbcTemplate,
+      EntityManagerFactory entityManagerFactory,
+      ApplicationEventPublisher applicationEventPublisher) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.entityManagerFactory = entityManagerFactory;
+    this.applicationEventPublisher = applicationEventPublisher;
+  }
+
+  @Override
+  public boolean insertIfAbsent(Book book) {
+    return !insertAllIfAbsent(List.of(book)).isEmpty();
+  }
+
+  // Hibernate can't batch inserts for IDENTITY ids, a JDBC batch sends all rows in one round trip.
+  // Books stored concurrently by another consumer are skipped instead of failing the whole batch
+  // on the unique constraint, only the written books are returned.
+  @Override
+  @Transactional
+  public List<Book> insertAllIfAbsent(List<Book> books) {
+    if (books.isEmpty()) {
+      return List.of();
+    }
+
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    int[] updateCounts =
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_BOOK_IF_ABSENT, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+              @Override
+              public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Book book = books.get(i);
+                ps.setString(1, book.getTitle());
+                ps.setString(2, book.getIsbn());
+                ps.setString(3, book.getAuthor());
+                ps.setString(4, book.getGenre());
+                ps.setString(5, book.getThumbnailUrl());
+                ps.setString(6, book.getDescription());
+                ps.setString(7, book.getPublisher());
+                if (book.getPages() == null) {
+                  ps.setNull(8, Types.BIGINT);
+                } else {
+                  ps.setLong(8, book.getPages());
+                }
+                ps.setTimestamp(9, Timestamp.from(book.getLastSyncedAt()));
+              }
+
+              @Override
+              public int getBatchSize() {
+                return books.size();
+              }
+            },
+            keyHolder);
+
+    // skipped rows neither count as updated nor return a generated key
+    Iterator<Map<String, Object>> keys = keyHolder.getKeyList().iterator();
+    List<Book> insertedBooks = new ArrayList<>();
+    for (int i = 0; i < books.size(); i++) {
+      if (updateCounts[i] == 0) {
+        continue;
+      }
+      Book book = books.get(i);
+      book.setId(((Number) keys.next().get("id")).longValue());
+      insertedBooks.add(book);
+    }
+
+    // the JPA entity listener doesn't see these rows, keep caches and indexes in sync anyway
+    if (!insertedBooks.isEmpty()) {
+      applicationEventPublisher.publishEvent(new BookCatalogChangedEvent(insertedBooks, false));
+    }
+    return insertedBooks;
+  }
+
+  // The sync timestamp is bookkeeping, not catalog data. Written past Hibernate, it neither fires
+  // the entity listener's catalog events nor, like a JPQL bulk update, clears the whole cache
+  // region; only the cached copies of these books are evicted.
+  @Override
+  @Transactional
+  public void markSynced(Collection<Long> ids, Instant syncedAt) {
+    if (ids.isEmpty()) {
+      return;
+    }
+
+    namedParameterJdbcTemplate.update(
+        MARK_BOOKS_SYNCED, Map.of("syncedAt", Timestamp.from(syncedAt), "ids", ids));
+    ids.forEach(id -> entityManagerFactory.getCache().evict(Book.class, id));
+  }
+
+  // Moves the stale books out of the stale range until claimedUntil is stale again, so other
+  // instances pick the next ones, also after this claim committed. A book the claiming instance
+  // never marks as synchronized, because it failed or the instance died, is claimed again then.
+  @Override
+  @Transactional
+  public List<Long> claimStaleBooks(Instant staleBefore, Instant claimedUntil, int limit) {
+    List<Long> ids =
+        namedParameterJdbcTemplate.queryForList(
+            CLAIM_STALE_BOOKS,
+            Map.of(
+                "staleBefore",
+                Timestamp.from(staleBefore),
+                "claimedUntil",
+                Timestamp.from(claimedUntil),
+                "limit",
+                limit),
+            Long.class);
+    ids.forEach(id -> entityManagerFactory.getCache().evict(Book.class, id));
+    return ids;
+  }
+}
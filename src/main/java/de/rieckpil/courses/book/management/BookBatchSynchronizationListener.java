@@ -0,0 +1,65 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.awspring.cloud.sqs.annotation.SqsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "sqs.book-synchronization-batch.enabled", havingValue = "true")
+public class BookBatchSynchronizationListener {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BookBatchSynchronizationListener.class.getName());
+
+  private final BookRepository bookRepository;
+  private final OpenLibraryApiClient openLibraryApiClient;
+  private final BookIsbnIndex bookIsbnIndex;
+
+  public BookBatchSynchronizationListener(
+      BookRepository bookRepository,
+      OpenLibraryApiClient openLibraryApiClient,
+      BookIsbnIndex bookIsbnIndex) {
+    this.bookRepository = bookRepository;
+    this.openLibraryApiClient = openLibraryApiClient;
+    this.bookIsbnIndex = bookIsbnIndex;
+  }
+
+  @SqsListener(
+      value = "${sqs.book-synchronization-queue}",
+      id = BookSynchronizationBackpressure.LISTENER_ID,
+      maxMessagesPerPoll = "${sqs.book-synchronization-batch.max-messages:10}",
+      maxConcurrentMessages = "${sqs.book-synchronization-batch.max-messages:10}")
+  public void consumeBookUpdates(List<BookSynchronization> bookSynchronizations) {
+    LOG.info("Incoming batch of {} book updates", bookSynchronizations.size());
+
+    Set<String> isbns = new LinkedHashSet<>();
+    for (BookSynchronization bookSynchronization : bookSynchronizations) {
+      String isbn = bookSynchronization.isbn();
+      if (isbn.length() != 13) {
+        LOG.warn("Incoming isbn '{}' is not 13 characters long, rejecting it", isbn);
+      } else if (!bookIsbnIndex.contains(isbn)) {
+        isbns.add(isbn);
+      }
+    }
+
+    if (!isbns.isEmpty()) {
+      isbns.removeAll(bookRepository.findExistingIsbns(isbns));
+    }
+
+    if (isbns.isEmpty()) {
+      LOG.debug("All books of the batch are already present");
+      return;
+    }
+
+    List<Book> books =
+        bookRepository.insertAllIfAbsent(openLibraryApiClient.fetchMetadataForBooks(isbns));
+
+    LOG.info("Successfully stored {} new books out of {} requested", books.size(), isbns.size());
+  }
+}
@@ -0,0 +1,11 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.List;
+
+// batch writers publish one event for all books they stored, so listeners apply them together
+public record BookCatalogChangedEvent(List<Book> books, boolean removed) {
+
+  public BookCatalogChangedEvent(Book book, boolean removed) {
+    this(List.of(book), removed);
+  }
+}
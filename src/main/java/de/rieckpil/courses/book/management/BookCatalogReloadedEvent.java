@@ -0,0 +1,4 @@
+package de.rieckpil.courses.book.management;
+
+// published after bulk changes that bypass JPA and are too large for one event per book
+public record BookCatalogReloadedEvent() {}
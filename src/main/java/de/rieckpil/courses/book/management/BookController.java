@@ -1,10 +1,22 @@
 package de.rieckpil.courses.book.management;
 
+import java.io.IOException;
 import java.util.List;
 
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/books")
@@ -17,7 +29,74 @@ public class BookController {
   }
 
   @GetMapping
-  public List<Book> getAvailableBooks() {
-    return bookManagementService.getAllBooks();
+  public ResponseEntity<List<Book>> getAvailableBooks(WebRequest webRequest) {
+    // answer repeated polls based on the catalog version alone, before any books are loaded
+    if (webRequest.checkNotModified(bookManagementService.getCatalogETag())) {
+      return null;
+    }
+
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.noCache())
+        .body(bookManagementService.getAllBooks());
+  }
+
+  // summaries aren't paged, a page must not silently fall back to full books with descriptions
+  @GetMapping(params = "view=summary")
+  public ResponseEntity<List<BookSummary>> getAvailableBookSummaries(
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "after", required = false) Long after,
+      WebRequest webRequest) {
+    if (limit != null || after != null) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "The summary view can't be combined with limit or after");
+    }
+
+    if (webRequest.checkNotModified(bookManagementService.getCatalogETag())) {
+      return null;
+    }
+
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.noCache())
+        .body(bookManagementService.getAllBookSummaries());
+  }
+
+  @GetMapping(params = {"limit", "view!=summary"})
+  public BookPage getAvailableBooksPage(
+      @RequestParam(name = "after", required = false) Long after,
+      @RequestParam(name = "limit") Integer limit) {
+    return bookManagementService.getBooksAfter(after, limit);
+  }
+
+  // a cursor without a limit still pages, it must never fall through to the whole catalog
+  @GetMapping(params = {"after", "!limit", "view!=summary"})
+  public BookPage getAvailableBooksPageAfter(@RequestParam(name = "after") Long after) {
+    return bookManagementService.getBooksAfter(after, BookManagementService.DEFAULT_PAGE_SIZE);
+  }
+
+  @GetMapping("/search")
+  public List<Book> searchBooks(
+      @RequestParam(name = "q") String query,
+      @RequestParam(name = "page", defaultValue = "0") Integer page,
+      @RequestParam(name = "size", defaultValue = "20") Integer size) {
+    return bookManagementService.searchBooks(query, page, size);
+  }
+
+  @PostMapping("/lookup")
+  public List<Book> lookupBooks(
+      @RequestBody @Size(max = BookManagementService.MAX_LOOKUP_SIZE) List<String> isbns) {
+    return bookManagementService.lookupBooks(isbns);
+  }
+
+  @GetMapping("/suggest")
+  public List<BookSummary> suggestBooks(
+      @RequestParam(name = "prefix") String prefix,
+      @RequestParam(name = "limit", defaultValue = "10") Integer limit) {
+    return bookManagementService.suggestBooks(prefix, limit);
+  }
+
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void exportBooks(HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    bookManagementService.exportBooks(response.getOutputStream());
   }
 }
@@ -0,0 +1,259 @@
+package de.rieckpil.courses.book.management;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Keeps the cover image of each book, and its pre-resized variants, in files below a shard
+// directory. A cover is fetched once and then served from local disk until it expires. The file
+// name contains a digest of the thumbnail URL, so a changed URL is a cache miss instead of a stale
+// cover. Only covers of the configured source are fetched, whatever URL a feed stored.
+@Component
+public class BookCoverCache {
+
+  private static final Pattern CACHEABLE_ISBN = Pattern.compile("\\d{9}[\\dX]|\\d{13}");
+
+  private final BookRepository bookRepository;
+  private final WebClient openLibraryWebClient;
+  private final OpenLibraryConcurrencyLimiter concurrencyLimiter;
+  private final OpenLibraryCircuitBreaker circuitBreaker;
+  private final URI sourceUrl;
+  private final CacheDirectory cacheDirectory;
+  private final NavigableSet<Integer> widths;
+  private final SingleFlight<Path> coverFetches;
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter resizes;
+
+  public BookCoverCache(
+      BookRepository bookRepository,
+      WebClient openLibraryWebClient,
+      OpenLibraryConcurrencyLimiter concurrencyLimiter,
+      OpenLibraryCircuitBreaker circuitBreaker,
+      @Value("${books.covers.source-url:https://covers.openlibrary.org}") URI sourceUrl,
+      @Value("${books.covers.cache.directory:${java.io.tmpdir}/book-covers}") Path directory,
+      @Value("${books.covers.cache.time-to-live:P30D}") Duration timeToLive,
+      @Value("${books.covers.cache.max-size:1GB}") DataSize maxSize,
+      @Value("${books.covers.widths:64,128,256}") List<Integer> widths,
+      MeterRegistry meterRegistry) {
+    this.bookRepository = bookRepository;
+    this.openLibraryWebClient = openLibraryWebClient;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.sourceUrl = sourceUrl;
+    this.cacheDirectory =
+        new CacheDirectory(directory, timeToLive, maxSize, "books.covers.cache", meterRegistry);
+    this.widths = new TreeSet<>(widths);
+    this.coverFetches = new SingleFlight<>(meterRegistry.counter("books.covers.coalesced"));
+    this.hits = meterRegistry.counter("books.covers", "result", "hit");
+    this.misses = meterRegistry.counter("books.covers", "result", "miss");
+    this.resizes = meterRegistry.counter("books.covers.resizes");
+  }
+
+  // a requested width is rounded up to the next configured one, so the number of variants per
+  // cover stays bounded; without a width, or above the largest one, the original is returned
+  public CompletableFuture<Path> getCover(String isbn, Integer width) {
+    Book book = CACHEABLE_ISBN.matcher(isbn).matches() ? bookRepository.findByIsbn(isbn) : null;
+    URI thumbnailUrl = book == null ? null : fromSource(book.getThumbnailUrl());
+    if (thumbnailUrl == null) {
+      throw new BookCoverNotFoundException("No cover available for isbn " + isbn);
+    }
+
+    String extension = StringUtils.getFilenameExtension(thumbnailUrl.getPath());
+    if (extension == null || !ImageIO.getImageWritersBySuffix(extension).hasNext()) {
+      extension = "jpg";
+    }
+    String name = isbn + "-" + digest(thumbnailUrl.toString());
+
+    Path original = fileFor(isbn, name + "." + extension);
+    CompletableFuture<Path> cover;
+    if (isCached(original)) {
+      hits.increment();
+      cover = CompletableFuture.completedFuture(original);
+    } else {
+      misses.increment();
+      cover =
+          coverFetches.execute(
+              original.toString(), () -> fetchCover(isbn, name, thumbnailUrl, original).toFuture());
+    }
+
+    Integer variantWidth = width == null ? null : widths.ceiling(width);
+    if (variantWidth == null) {
+      return cover;
+    }
+
+    Path variant = fileFor(isbn, name + "-" + variantWidth + "." + extension);
+    return cover.thenCompose(
+        fetched ->
+            isCached(variant)
+                ? CompletableFuture.completedFuture(variant)
+                : coverFetches.execute(
+                    variant.toString(),
+                    () ->
+                        Mono.fromCallable(() -> resize(original, variant, variantWidth))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .toFuture()));
+  }
+
+  // scheme, host and port must match, stored URLs of feeds can point anywhere
+  private URI fromSource(String thumbnailUrl) {
+    if (!StringUtils.hasText(thumbnailUrl)) {
+      return null;
+    }
+
+    try {
+      URI url = URI.create(thumbnailUrl);
+      return sourceUrl.getScheme().equalsIgnoreCase(url.getScheme())
+              && sourceUrl.getHost().equalsIgnoreCase(url.getHost())
+              && sourceUrl.getPort() == url.getPort()
+          ? url
+          : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // The body is streamed into a temp file, so a cover's size is not bound by the codec's buffer
+  // limit. Like every OpenLibrary call it needs a permit of the limiter and passes the breaker.
+  private Mono<Path> fetchCover(String isbn, String name, URI thumbnailUrl, Path original) {
+    return Mono.using(
+            () -> cacheDirectory.createTemporaryFile(original),
+            temporaryFile -> {
+              Mono<Void> download =
+                  DataBufferUtils.write(
+                      openLibraryWebClient
+                          .get()
+                          .uri(thumbnailUrl)
+                          .retrieve()
+                          .bodyToFlux(DataBuffer.class),
+                      temporaryFile);
+
+              return circuitBreaker
+                  .execute(concurrencyLimiter.execute(download))
+                  // moving the file and cleaning up are blocking, keep them off the event loop
+                  .publishOn(Schedulers.boundedElastic())
+                  .then(
+                      Mono.fromCallable(
+                          () -> {
+                            cacheDirectory.commit(temporaryFile, original);
+                            deletePreviousCovers(isbn, name);
+                            return original;
+                          }));
+            },
+            cacheDirectory::deleteTemporaryFile)
+        .onErrorMap(
+            WebClientResponseException.NotFound.class,
+            e -> new BookCoverNotFoundException("No cover available for isbn " + isbn));
+  }
+
+  // covers of a former thumbnail URL, and their variants, would otherwise wait for eviction
+  private void deletePreviousCovers(String isbn, String name) throws IOException {
+    try (DirectoryStream<Path> covers =
+        Files.newDirectoryStream(fileFor(isbn, name).getParent(), isbn + "-*")) {
+      for (Path cover : covers) {
+        if (!cover.getFileName().toString().startsWith(name)) {
+          cacheDirectory.delete(cover);
+        }
+      }
+    }
+  }
+
+  // covers are only scaled down, a variant at least as wide as the original is a copy of it
+  private Path resize(Path original, Path variant, int width) {
+    try {
+      BufferedImage source = ImageIO.read(original.toFile());
+      if (source == null || source.getWidth() <= width) {
+        cacheDirectory.write(variant, Files.readAllBytes(original));
+        return variant;
+      }
+
+      int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+      BufferedImage target =
+          new BufferedImage(
+              width,
+              height,
+              source.getColorModel().hasAlpha()
+                  ? BufferedImage.TYPE_INT_ARGB
+                  : BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = target.createGraphics();
+      try {
+        graphics.setRenderingHint(
+            RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(
+            RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.drawImage(source, 0, 0, width, height, null);
+      } finally {
+        graphics.dispose();
+      }
+
+      ByteArrayOutputStream content = new ByteArrayOutputStream();
+      ImageIO.write(
+          target, StringUtils.getFilenameExtension(variant.getFileName().toString()), content);
+      resizes.increment();
+      cacheDirectory.write(variant, content.toByteArray());
+      return variant;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to resize cover " + original, e);
+    }
+  }
+
+  private boolean isCached(Path file) {
+    try {
+      if (!cacheDirectory.isExpired(file)) {
+        return true;
+      }
+      cacheDirectory.delete(file);
+      return false;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private Path fileFor(String isbn, String name) {
+    // the trailing digits of an ISBN are evenly distributed, the leading ones are not
+    return cacheDirectory.resolve(isbn.substring(isbn.length() - 2), name);
+  }
+
+  private static String digest(String value) {
+    try {
+      return HexFormat.of()
+          .formatHex(
+              MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
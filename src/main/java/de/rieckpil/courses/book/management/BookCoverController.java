@@ -0,0 +1,52 @@
+package de.rieckpil.courses.book.management;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/books")
+public class BookCoverController {
+
+  private final BookCoverCache bookCoverCache;
+  private final CacheControl cacheControl;
+
+  public BookCoverController(
+      BookCoverCache bookCoverCache, @Value("${books.covers.max-age:P30D}") Duration maxAge) {
+    this.bookCoverCache = bookCoverCache;
+    this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+  }
+
+  // the file name changes with the thumbnail URL, so it doubles as ETag for revalidations; the
+  // request thread is released while a missing cover is fetched
+  @GetMapping("/{isbn}/cover")
+  public CompletableFuture<ResponseEntity<Resource>> getBookCover(
+      @PathVariable("isbn") String isbn,
+      @RequestParam(name = "width", required = false) Integer width) {
+    return bookCoverCache.getCover(isbn, width).thenApply(this::toResponse);
+  }
+
+  private ResponseEntity<Resource> toResponse(Path cover) {
+    Resource resource = new FileSystemResource(cover);
+
+    return ResponseEntity.ok()
+        .cacheControl(cacheControl)
+        .eTag(cover.getFileName().toString())
+        .contentType(
+            MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM))
+        .body(resource);
+  }
+}
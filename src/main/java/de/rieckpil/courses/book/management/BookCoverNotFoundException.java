@@ -0,0 +1,11 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class BookCoverNotFoundException extends RuntimeException {
+  public BookCoverNotFoundException(String message) {
+    super(message);
+  }
+}
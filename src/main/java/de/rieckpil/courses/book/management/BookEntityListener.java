@@ -0,0 +1,28 @@
+package de.rieckpil.courses.book.management;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BookEntityListener {
+
+  private final ApplicationEventPublisher applicationEventPublisher;
+
+  public BookEntityListener(ApplicationEventPublisher applicationEventPublisher) {
+    this.applicationEventPublisher = applicationEventPublisher;
+  }
+
+  @PostPersist
+  @PostUpdate
+  public void onStored(Book book) {
+    applicationEventPublisher.publishEvent(new BookCatalogChangedEvent(book, false));
+  }
+
+  @PostRemove
+  public void onRemoved(Book book) {
+    applicationEventPublisher.publishEvent(new BookCatalogChangedEvent(book, true));
+  }
+}
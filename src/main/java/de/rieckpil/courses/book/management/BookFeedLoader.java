@@ -0,0 +1,180 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Loads a publisher feed with full metadata, a CSV file with the header
+// title,isbn,author,genre,thumbnail_url,description,publisher,pages, into the books table.
+// The file is streamed with COPY into a temporary table, so neither the application nor the JDBC
+// driver hold more than a buffer of it, and merged on isbn in ranges of merge-batch-size rows.
+// Each range commits on its own, so row locks and WAL are held for a range, not the whole feed.
+@Component
+@ConditionalOnProperty(name = "books.feed.file")
+public class BookFeedLoader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookFeedLoader.class.getName());
+
+  private static final String COLUMNS =
+      "title, isbn, author, genre, thumbnail_url, description, publisher, pages";
+
+  // private to the session, so concurrent loads on other connections never collide; it survives
+  // the commits of the ranges and is dropped once the feed is merged. The id is the line number,
+  // ranges of it are merged one after the other.
+  private static final String CREATE_STAGING_TABLE =
+      "CREATE TEMPORARY TABLE books_feed (id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,"
+          + " title TEXT, isbn TEXT, author TEXT, genre TEXT, thumbnail_url TEXT, description TEXT,"
+          + " publisher TEXT, pages BIGINT) ON COMMIT PRESERVE ROWS";
+
+  private static final String DROP_STAGING_TABLE = "DROP TABLE IF EXISTS books_feed";
+
+  private static final String COPY_INTO_STAGING_TABLE =
+      "COPY books_feed (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+  // the feed wins over stored metadata, unchanged rows are skipped to not bloat the table with
+  // dead tuples; DISTINCT ON keeps the last row per isbn of a range as a row can't be updated
+  // twice by one statement, later ranges overwrite earlier ones like later lines do. Written rows
+  // count as synchronized, the refresher leaves them alone for max-age.
+  private static final String MERGE_RANGE_INTO_BOOKS =
+      "INSERT INTO books ("
+          + COLUMNS
+          + ", last_synced_at) SELECT DISTINCT ON (isbn) "
+          + COLUMNS
+          + ", now() FROM books_feed WHERE id > ? AND id <= ? AND isbn ~ '^\\d{13}$'"
+          + " AND title IS NOT NULL ORDER BY isbn, id DESC"
+          + " ON CONFLICT (isbn) DO UPDATE SET title = EXCLUDED.title, author = EXCLUDED.author,"
+          + " genre = EXCLUDED.genre, thumbnail_url = EXCLUDED.thumbnail_url,"
+          + " description = EXCLUDED.description, publisher = EXCLUDED.publisher,"
+          + " pages = EXCLUDED.pages, last_synced_at = EXCLUDED.last_synced_at"
+          + " WHERE (books.title, books.author, books.genre, books.thumbnail_url,"
+          + " books.description, books.publisher, books.pages)"
+          + " IS DISTINCT FROM (EXCLUDED.title, EXCLUDED.author, EXCLUDED.genre,"
+          + " EXCLUDED.thumbnail_url, EXCLUDED.description, EXCLUDED.publisher, EXCLUDED.pages)";
+
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EntityManagerFactory entityManagerFactory;
+  private final ApplicationEventPublisher applicationEventPublisher;
+  private final Path file;
+  private final int mergeBatchSize;
+
+  private final Counter copiedRows;
+  private final Counter mergedRows;
+
+  public BookFeedLoader(
+      JdbcTemplate jdbcTemplate,
+      EntityManagerFactory entityManagerFactory,
+      ApplicationEventPublisher applicationEventPublisher,
+      @Value("${books.feed.file}") Path file,
+      @Value("${books.feed.merge-batch-size:10000}") int mergeBatchSize,
+      MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.entityManagerFactory = entityManagerFactory;
+    this.applicationEventPublisher = applicationEventPublisher;
+    this.file = file;
+    this.mergeBatchSize = mergeBatchSize;
+
+    this.copiedRows = meterRegistry.counter("books.feed.rows", "outcome", "copied");
+    this.mergedRows = meterRegistry.counter("books.feed.rows", "outcome", "merged");
+  }
+
+  @EventListener
+  public void startLoad(ApplicationReadyEvent event) {
+    Thread.ofVirtual().name("book-feed-load").start(() -> load(file));
+  }
+
+  public LoadResult load(Path file) {
+    LOG.info("Loading book feed from {}", file);
+    long startNanos = System.nanoTime();
+
+    LoadResult result;
+    try (Reader feed = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      result =
+          jdbcTemplate.execute(
+              (ConnectionCallback<LoadResult>) connection -> mergeFeed(connection, feed));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read book feed " + file, e);
+    } finally {
+      // The rows bypassed Hibernate, cached entities and query results might be stale now. Ranges
+      // merged before a failure stay committed, so this holds for a failed load as well.
+      entityManagerFactory.getCache().evictAll();
+      applicationEventPublisher.publishEvent(new BookCatalogReloadedEvent());
+    }
+
+    LOG.info(
+        "Loaded book feed from {} in {} s: {}",
+        file,
+        (System.nanoTime() - startNanos) / 1_000_000_000,
+        result);
+    return result;
+  }
+
+  // The staging table only exists in this session, so all ranges run on this one connection, with
+  // their transactions committed here instead of by a transaction manager.
+  private LoadResult mergeFeed(Connection connection, Reader feed) throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(CREATE_STAGING_TABLE);
+      long copied =
+          connection
+              .unwrap(PGConnection.class)
+              .getCopyAPI()
+              .copyIn(COPY_INTO_STAGING_TABLE, feed, COPY_BUFFER_SIZE);
+      // the planner knows nothing about a freshly filled temporary table
+      statement.execute("ANALYZE books_feed");
+      connection.commit();
+      copiedRows.increment(copied);
+
+      long merged = 0;
+      try (PreparedStatement mergeRange = connection.prepareStatement(MERGE_RANGE_INTO_BOOKS)) {
+        for (long after = 0; after < copied; after += mergeBatchSize) {
+          mergeRange.setLong(1, after);
+          mergeRange.setLong(2, after + mergeBatchSize);
+          long mergedInRange = mergeRange.executeUpdate();
+          connection.commit();
+
+          mergedRows.increment(mergedInRange);
+          merged += mergedInRange;
+          LOG.debug("Merged {} of {} feed rows", Math.min(after + mergeBatchSize, copied), copied);
+        }
+      }
+      return new LoadResult(copied, merged);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      // a failed range is rolled back, the ones before it stay committed
+      connection.rollback();
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(DROP_STAGING_TABLE);
+      }
+      connection.commit();
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  public record LoadResult(long copied, long merged) {}
+}
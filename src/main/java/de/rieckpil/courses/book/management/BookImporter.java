@@ -0,0 +1,265 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+// Imports a file with one ISBN per line, or a CSV with the ISBN in its first column, without going
+// through SQS. The file is streamed in chunks: each chunk is deduplicated against the catalog with
+// one query, fetched from OpenLibrary with a bounded number of parallel batch requests and stored
+// with one JDBC batch, so memory stays constant independent of the file size.
+@Component
+@ConditionalOnProperty(name = "books.import.file")
+public class BookImporter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookImporter.class.getName());
+
+  private static final Pattern VALID_ISBN = Pattern.compile("\\d{13}");
+
+  private final BookRepository bookRepository;
+  private final OpenLibraryApiClient openLibraryApiClient;
+  private final BookIsbnIndex bookIsbnIndex;
+  private final Path file;
+  private final int chunkSize;
+  private final int fetchBatchSize;
+  private final int fetchParallelism;
+  private final Duration circuitOpenRetryDelay;
+
+  private final Counter importedIsbns;
+  private final Counter skippedIsbns;
+  private final Counter invalidIsbns;
+  private final Counter failedIsbns;
+
+  public BookImporter(
+      BookRepository bookRepository,
+      OpenLibraryApiClient openLibraryApiClient,
+      BookIsbnIndex bookIsbnIndex,
+      @Value("${books.import.file}") Path file,
+      @Value("${books.import.chunk-size:1000}") int chunkSize,
+      @Value("${books.import.fetch-batch-size:50}") int fetchBatchSize,
+      @Value("${books.import.fetch-parallelism:4}") int fetchParallelism,
+      @Value("${clients.open-library.circuit-breaker.open-duration:PT30S}")
+          Duration circuitOpenRetryDelay,
+      MeterRegistry meterRegistry) {
+    this.bookRepository = bookRepository;
+    this.openLibraryApiClient = openLibraryApiClient;
+    this.bookIsbnIndex = bookIsbnIndex;
+    this.file = file;
+    this.chunkSize = chunkSize;
+    this.fetchBatchSize = fetchBatchSize;
+    this.fetchParallelism = fetchParallelism;
+    this.circuitOpenRetryDelay = circuitOpenRetryDelay;
+
+    this.importedIsbns = meterRegistry.counter("books.import.isbns", "outcome", "imported");
+    this.skippedIsbns = meterRegistry.counter("books.import.isbns", "outcome", "skipped");
+    this.invalidIsbns = meterRegistry.counter("books.import.isbns", "outcome", "invalid");
+    this.failedIsbns = meterRegistry.counter("books.import.isbns", "outcome", "failed");
+  }
+
+  // a large import takes a while, it must neither block startup nor a request thread
+  @EventListener
+  public void startImport(ApplicationReadyEvent event) {
+    Thread.ofVirtual()
+        .name("book-import")
+        .start(
+            () -> {
+              try {
+                importBooks(file);
+              } catch (RuntimeException e) {
+                // already logged with the progress of the import
+              }
+            });
+  }
+
+  public ImportResult importBooks(Path file) {
+    LOG.info("Importing books from {}", file);
+    long startNanos = System.nanoTime();
+    ImportProgress progress = new ImportProgress();
+
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      Set<String> chunk = new LinkedHashSet<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String isbn = parseIsbn(line);
+        if (isbn == null) {
+          continue;
+        }
+        if (!VALID_ISBN.matcher(isbn).matches()) {
+          invalidIsbns.increment();
+          progress.invalid++;
+          continue;
+        }
+
+        // duplicates within the chunk are dropped here, later ones are found in the catalog
+        if (!chunk.add(isbn)) {
+          addSkipped(progress, 1);
+        } else if (chunk.size() == chunkSize) {
+          importChunk(chunk, progress);
+          logProgress(progress, startNanos);
+          chunk.clear();
+        }
+      }
+      importChunk(chunk, progress);
+    } catch (IOException e) {
+      LOG.error("Unable to read book import file {}, imported so far: {}", file, progress, e);
+      throw new UncheckedIOException("Unable to read book import file " + file, e);
+    } catch (RuntimeException e) {
+      LOG.error("Import of books from {} failed, imported so far: {}", file, progress, e);
+      throw e;
+    }
+
+    ImportResult result = progress.toResult();
+    LOG.info(
+        "Finished importing books from {} in {} s: {}",
+        file,
+        (System.nanoTime() - startNanos) / 1_000_000_000,
+        result);
+    return result;
+  }
+
+  private void importChunk(Set<String> chunk, ImportProgress progress) {
+    if (chunk.isEmpty()) {
+      return;
+    }
+
+    Set<String> missingIsbns = new LinkedHashSet<>(chunk);
+    missingIsbns.removeIf(bookIsbnIndex::contains);
+    if (!missingIsbns.isEmpty()) {
+      missingIsbns.removeAll(bookRepository.findExistingIsbns(missingIsbns));
+    }
+    addSkipped(progress, chunk.size() - missingIsbns.size());
+
+    if (missingIsbns.isEmpty()) {
+      return;
+    }
+
+    List<List<String>> fetchBatches = new ArrayList<>();
+    List<String> fetchBatch = new ArrayList<>(fetchBatchSize);
+    for (String isbn : missingIsbns) {
+      fetchBatch.add(isbn);
+      if (fetchBatch.size() == fetchBatchSize) {
+        fetchBatches.add(fetchBatch);
+        fetchBatch = new ArrayList<>(fetchBatchSize);
+      }
+    }
+    if (!fetchBatch.isEmpty()) {
+      fetchBatches.add(fetchBatch);
+    }
+
+    // A failing batch is counted and skipped, the ISBNs are fetched again by the next import. While
+    // the circuit breaker is open every batch would fail right away, so the batch waits for it to
+    // let calls through again instead of the rest of the file being skipped.
+    List<Book> books =
+        Flux.fromIterable(fetchBatches)
+            .flatMap(
+                isbns ->
+                    Mono.defer(() -> openLibraryApiClient.fetchMetadataForBooksAsync(isbns))
+                        .retryWhen(
+                            Retry.fixedDelay(Long.MAX_VALUE, circuitOpenRetryDelay)
+                                .filter(OpenLibraryUnavailableException.class::isInstance)
+                                .doBeforeRetry(
+                                    signal ->
+                                        LOG.info(
+                                            "OpenLibrary is unavailable, retrying {} books in {}",
+                                            isbns.size(),
+                                            circuitOpenRetryDelay)))
+                        .onErrorResume(
+                            error -> {
+                              LOG.warn(
+                                  "Unable to fetch metadata for {} books", isbns.size(), error);
+                              return Mono.just(List.of());
+                            }),
+                fetchParallelism)
+            .flatMapIterable(fetchedBooks -> fetchedBooks)
+            .collectList()
+            .block();
+
+    // ISBNs of failed batches and ones unknown to OpenLibrary are missing from the result
+    long fetched = books.size();
+    addFailed(progress, missingIsbns.size() - fetched);
+
+    List<Book> insertedBooks = bookRepository.insertAllIfAbsent(books);
+    importedIsbns.increment(insertedBooks.size());
+    progress.imported += insertedBooks.size();
+    // stored concurrently, e.g. by the synchronization listener
+    addSkipped(progress, fetched - insertedBooks.size());
+  }
+
+  private void addSkipped(ImportProgress progress, long count) {
+    skippedIsbns.increment(count);
+    progress.skipped += count;
+  }
+
+  private void addFailed(ImportProgress progress, long count) {
+    failedIsbns.increment(count);
+    progress.failed += count;
+  }
+
+  private void logProgress(ImportProgress progress, long startNanos) {
+    long processed = progress.processed();
+    double seconds = Math.max(1, System.nanoTime() - startNanos) / 1_000_000_000.0;
+    LOG.info(
+        "Processed {} ISBNs ({} ISBNs/s): {}",
+        processed,
+        Math.round(processed / seconds),
+        progress.toResult());
+  }
+
+  // blank lines, comments and a CSV header are ignored, hyphens within an ISBN are allowed
+  private static String parseIsbn(String line) {
+    int separator = line.indexOf(',');
+    String value =
+        (separator < 0 ? line : line.substring(0, separator))
+            .replace("\"", "")
+            .replace("-", "")
+            .strip();
+    if (value.isEmpty() || value.startsWith("#") || value.equalsIgnoreCase("isbn")) {
+      return null;
+    }
+    return value;
+  }
+
+  public record ImportResult(long imported, long skipped, long invalid, long failed) {}
+
+  private static final class ImportProgress {
+    private long imported;
+    private long skipped;
+    private long invalid;
+    private long failed;
+
+    long processed() {
+      return imported + skipped + invalid + failed;
+    }
+
+    ImportResult toResult() {
+      return new ImportResult(imported, skipped, invalid, failed);
+    }
+
+    @Override
+    public String toString() {
+      return toResult().toString();
+    }
+  }
+}
@@ -0,0 +1,3 @@
+package de.rieckpil.courses.book.management;
+
+public record BookIsbn(Long id, String isbn) {}
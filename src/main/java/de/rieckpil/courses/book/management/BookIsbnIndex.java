@@ -0,0 +1,114 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class BookIsbnIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookIsbnIndex.class.getName());
+
+  private final BookRepository bookRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private LongLongHashMap bookIdsByIsbn = new LongLongHashMap(0);
+
+  public BookIsbnIndex(BookRepository bookRepository) {
+    this.bookRepository = bookRepository;
+  }
+
+  @EventListener({ApplicationReadyEvent.class, BookCatalogReloadedEvent.class})
+  @Transactional(readOnly = true)
+  public void loadIndex() {
+    LongLongHashMap index = new LongLongHashMap((int) bookRepository.count());
+
+    try (Stream<BookIsbn> books = bookRepository.streamAllIsbns()) {
+      books.forEach(
+          book -> {
+            long encodedIsbn = encode(book.isbn());
+            if (encodedIsbn > 0) {
+              index.put(encodedIsbn, book.id());
+            }
+          });
+    }
+
+    lock.writeLock().lock();
+    try {
+      bookIdsByIsbn = index;
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    LOG.info("Loaded ISBN index for {} books", index.size());
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookCatalogChanged(BookCatalogChangedEvent event) {
+    lock.writeLock().lock();
+    try {
+      for (Book book : event.books()) {
+        long encodedIsbn = encode(book.getIsbn());
+        if (encodedIsbn <= 0) {
+          continue;
+        }
+
+        if (event.removed()) {
+          bookIdsByIsbn.remove(encodedIsbn);
+        } else if (book.getId() != null) {
+          bookIdsByIsbn.put(encodedIsbn, book.getId());
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // a miss does not prove absence, other instances might have stored the book
+  public OptionalLong findBookId(String isbn) {
+    long encodedIsbn = encode(isbn);
+    if (encodedIsbn <= 0) {
+      return OptionalLong.empty();
+    }
+
+    long bookId;
+    lock.readLock().lock();
+    try {
+      bookId = bookIdsByIsbn.get(encodedIsbn);
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return bookId == LongLongHashMap.NO_VALUE ? OptionalLong.empty() : OptionalLong.of(bookId);
+  }
+
+  public boolean contains(String isbn) {
+    return findBookId(isbn).isPresent();
+  }
+
+  // an ISBN-13 has 13 digits and fits into a long, everything else is not indexed
+  static long encode(String isbn) {
+    if (isbn == null || isbn.length() != 13) {
+      return -1;
+    }
+
+    long result = 0;
+    for (int i = 0; i < isbn.length(); i++) {
+      char digit = isbn.charAt(i);
+      if (digit < '0' || digit > '9') {
+        return -1;
+      }
+      result = result * 10 + (digit - '0');
+    }
+    return result;
+  }
+}
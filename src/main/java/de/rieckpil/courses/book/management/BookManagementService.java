@@ -1,19 +1,211 @@
 package de.rieckpil.courses.book.management;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 @Service
 public class BookManagementService {
 
+  static final int DEFAULT_PAGE_SIZE = 20;
+  static final int MAX_PAGE_SIZE = 100;
+  static final int MAX_SUGGESTIONS = 20;
+  static final int MAX_LOOKUP_SIZE = 500;
+
   private final BookRepository bookRepository;
+  private final EntityManager entityManager;
+  private final ObjectMapper objectMapper;
+  private final BookSuggestionIndex bookSuggestionIndex;
+
+  private final AtomicLong catalogVersion = new AtomicLong();
+  private final long catalogVersionCheckIntervalNanos;
+  private final AtomicLong nextCatalogVersionCheck = new AtomicLong(System.nanoTime());
+  private volatile SharedCatalogVersion sharedCatalogVersion =
+      new SharedCatalogVersion(Long.MIN_VALUE, false);
+  private final ReentrantLock catalogRebuildLock = new ReentrantLock();
+  private volatile CatalogSnapshot catalogSnapshot;
+
+  private final Counter catalogCacheHits;
+  private final Counter catalogCacheMisses;
+  private final Counter catalogCacheRebuilds;
 
-  public BookManagementService(BookRepository bookRepository) {
+  public BookManagementService(
+      BookRepository bookRepository,
+      EntityManager entityManager,
+      ObjectMapper objectMapper,
+      BookSuggestionIndex bookSuggestionIndex,
+      @Value("${books.catalog.version-check-interval:PT5S}") Duration catalogVersionCheckInterval,
+      MeterRegistry meterRegistry) {
     this.bookRepository = bookRepository;
+    this.entityManager = entityManager;
+    this.objectMapper = objectMapper;
+    this.bookSuggestionIndex = bookSuggestionIndex;
+    this.catalogVersionCheckIntervalNanos = catalogVersionCheckInterval.toNanos();
+    this.catalogCacheHits = meterRegistry.counter("books.catalog.cache", "result", "hit");
+    this.catalogCacheMisses = meterRegistry.counter("books.catalog.cache", "result", "miss");
+    this.catalogCacheRebuilds = meterRegistry.counter("books.catalog.cache.rebuilds");
   }
 
   public List<Book> getAllBooks() {
-    return bookRepository.findAll();
+    checkSharedCatalogVersion();
+    CatalogSnapshot snapshot = catalogSnapshot;
+
+    if (snapshot != null && snapshot.version() == catalogVersion.get()) {
+      catalogCacheHits.increment();
+      return snapshot.books();
+    }
+
+    catalogCacheMisses.increment();
+    return rebuildCatalogSnapshot().books();
+  }
+
+  public List<BookSummary> getAllBookSummaries() {
+    return bookRepository.findSummariesByOrderByIdAsc();
+  }
+
+  // Derived from the shared version only, so every instance, also after a restart, answers with
+  // the same ETag for the same catalog. Until the version settled the content might still change
+  // without a new version, such responses get a tag of their own.
+  public String getCatalogETag() {
+    checkSharedCatalogVersion();
+    SharedCatalogVersion shared = sharedCatalogVersion;
+    return "\"" + shared.version() + (shared.settled() ? "" : "-pending") + "\"";
+  }
+
+  // own changes are committed by now, the next caller reads their version right away
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookCatalogChanged(BookCatalogChangedEvent event) {
+    catalogVersion.incrementAndGet();
+    nextCatalogVersionCheck.set(System.nanoTime());
+  }
+
+  @EventListener
+  public void onBookCatalogReloaded(BookCatalogReloadedEvent event) {
+    catalogVersion.incrementAndGet();
+    nextCatalogVersionCheck.set(System.nanoTime());
+  }
+
+  // Books stored by other instances publish no events here. Their changes are picked up from the
+  // shared version sequence at most one interval later, one caller per interval runs the query.
+  // The sequence is bumped before the writing transaction commits, so a snapshot built right after
+  // a bump may still miss the change: the snapshot is dropped once more when the version settled.
+  private void checkSharedCatalogVersion() {
+    long now = System.nanoTime();
+    long nextCheck = nextCatalogVersionCheck.get();
+    if (now - nextCheck < 0
+        || !nextCatalogVersionCheck.compareAndSet(
+            nextCheck, now + catalogVersionCheckIntervalNanos)) {
+      return;
+    }
+
+    long version = bookRepository.findCatalogVersion();
+    SharedCatalogVersion previous = sharedCatalogVersion;
+    boolean settled = version == previous.version();
+    if (!settled || !previous.settled()) {
+      catalogVersion.incrementAndGet();
+    }
+    sharedCatalogVersion = new SharedCatalogVersion(version, settled);
+  }
+
+  private CatalogSnapshot rebuildCatalogSnapshot() {
+    // a lock instead of synchronized to not pin virtual threads while waiting for the database
+    catalogRebuildLock.lock();
+    try {
+      CatalogSnapshot snapshot = catalogSnapshot;
+      long version = catalogVersion.get();
+
+      if (snapshot != null && snapshot.version() == version) {
+        return snapshot;
+      }
+
+      // a change committed while loading bumps the version and discards this snapshot again
+      snapshot = new CatalogSnapshot(version, List.copyOf(bookRepository.findAll()));
+      catalogSnapshot = snapshot;
+      catalogCacheRebuilds.increment();
+      return snapshot;
+    } finally {
+      catalogRebuildLock.unlock();
+    }
   }
+
+  public BookPage getBooksAfter(Long after, int limit) {
+    int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+
+    // fetch one extra row to find out if there is a next page without a second query
+    List<Book> books =
+        bookRepository.findByIdGreaterThanOrderByIdAsc(
+            after == null ? 0L : after, Limit.of(pageSize + 1));
+
+    if (books.size() <= pageSize) {
+      return new BookPage(books, null);
+    }
+
+    List<Book> page = books.subList(0, pageSize);
+    return new BookPage(page, page.get(pageSize - 1).getId());
+  }
+
+  public List<Book> searchBooks(String query, int page, int size) {
+    if (query.isBlank()) {
+      return List.of();
+    }
+
+    return bookRepository.search(
+        query, PageRequest.of(Math.max(page, 0), Math.clamp(size, 1, MAX_PAGE_SIZE)));
+  }
+
+  public List<Book> lookupBooks(List<String> isbns) {
+    Set<String> distinctIsbns = new LinkedHashSet<>(isbns);
+
+    if (distinctIsbns.isEmpty()) {
+      return List.of();
+    }
+
+    return bookRepository.findByIsbnIn(distinctIsbns);
+  }
+
+  public List<BookSummary> suggestBooks(String prefix, int limit) {
+    return bookSuggestionIndex.suggest(prefix, Math.clamp(limit, 1, MAX_SUGGESTIONS));
+  }
+
+  @Transactional(readOnly = true)
+  public void exportBooks(OutputStream outputStream) throws IOException {
+    try (Stream<Book> books = bookRepository.streamAllByOrderByIdAsc();
+        JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+
+      generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+      Iterator<Book> iterator = books.iterator();
+      while (iterator.hasNext()) {
+        Book book = iterator.next();
+        generator.writeObject(book);
+        generator.writeRaw('\n');
+        // keep the persistence context from growing with the size of the catalog
+        entityManager.detach(book);
+      }
+    }
+  }
+
+  private record CatalogSnapshot(long version, List<Book> books) {}
+
+  private record SharedCatalogVersion(long version, boolean settled) {}
 }
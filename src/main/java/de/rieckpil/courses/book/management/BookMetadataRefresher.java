@@ -0,0 +1,188 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Refetches the metadata of books not synchronized for max-age, batch-size books per tick. Every
+// instance refreshes, each tick claims its books in the database first, so instances never fetch
+// the same books. Books OpenLibrary currently fails for stay claimed for claim-timeout and are
+// retried then, meanwhile the ticks continue with the books behind them. With
+// @DynamicUpdate only the changed columns are written; books without changes are just marked as
+// synchronized in one statement, so they publish no catalog events.
+@Component
+@ConditionalOnProperty(name = "books.refresh.enabled", havingValue = "true")
+public class BookMetadataRefresher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookMetadataRefresher.class.getName());
+
+  private final BookRepository bookRepository;
+  private final OpenLibraryApiClient openLibraryApiClient;
+  private final TransactionTemplate transactionTemplate;
+  private final Duration maxAge;
+  private final Duration claimTimeout;
+  private final int batchSize;
+  private final int fetchBatchSize;
+  private final int fetchParallelism;
+
+  private final AtomicLong lagInSeconds = new AtomicLong();
+  private final Counter updatedBooks;
+  private final Counter unchangedBooks;
+  private final Counter unknownBooks;
+  private final Counter failedBooks;
+
+  public BookMetadataRefresher(
+      BookRepository bookRepository,
+      OpenLibraryApiClient openLibraryApiClient,
+      TransactionTemplate transactionTemplate,
+      @Value("${books.refresh.max-age:P30D}") Duration maxAge,
+      @Value("${books.refresh.claim-timeout:PT10M}") Duration claimTimeout,
+      @Value("${books.refresh.batch-size:100}") int batchSize,
+      @Value("${books.refresh.fetch-batch-size:50}") int fetchBatchSize,
+      @Value("${books.refresh.fetch-parallelism:2}") int fetchParallelism,
+      MeterRegistry meterRegistry) {
+    this.bookRepository = bookRepository;
+    this.openLibraryApiClient = openLibraryApiClient;
+    this.transactionTemplate = transactionTemplate;
+    this.maxAge = maxAge;
+    this.claimTimeout = claimTimeout;
+    this.batchSize = batchSize;
+    this.fetchBatchSize = fetchBatchSize;
+    this.fetchParallelism = fetchParallelism;
+
+    this.updatedBooks = meterRegistry.counter("books.refresh.books", "outcome", "updated");
+    this.unchangedBooks = meterRegistry.counter("books.refresh.books", "outcome", "unchanged");
+    this.unknownBooks = meterRegistry.counter("books.refresh.books", "outcome", "unknown");
+    this.failedBooks = meterRegistry.counter("books.refresh.books", "outcome", "failed");
+    // how far the refresher is behind: the age of the least recently synchronized book
+    meterRegistry.gauge("books.refresh.lag", lagInSeconds);
+  }
+
+  @Scheduled(
+      initialDelayString = "${books.refresh.initial-delay:PT1M}",
+      fixedDelayString = "${books.refresh.interval:PT1M}")
+  public void refreshStaleBooks() {
+    // the column's precision, so the cursor matches stored values exactly
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    bookRepository
+        .findOldestSyncedAt()
+        .ifPresent(oldest -> lagInSeconds.set(Duration.between(oldest, now).toSeconds()));
+
+    Instant staleBefore = now.minus(maxAge);
+    List<Long> ids =
+        bookRepository.claimStaleBooks(staleBefore, staleBefore.plus(claimTimeout), batchSize);
+    if (ids.isEmpty()) {
+      return;
+    }
+
+    List<Book> staleBooks = bookRepository.findAllById(ids);
+    Set<String> failedIsbns = new HashSet<>();
+    Map<String, Book> fetchedBooks = fetchMetadata(staleBooks, failedIsbns);
+
+    // no transaction is held open during the remote calls, the books are reloaded to apply them
+    transactionTemplate.executeWithoutResult(
+        status -> {
+          List<Long> syncedIds = new ArrayList<>();
+          for (Book book : bookRepository.findAllById(ids)) {
+            if (failedIsbns.contains(book.getIsbn())) {
+              failedBooks.increment();
+              continue;
+            }
+
+            Book fetched = fetchedBooks.get(book.getIsbn());
+            if (fetched != null && applyMetadata(book, fetched)) {
+              updatedBooks.increment();
+              book.setLastSyncedAt(now);
+              continue;
+            }
+
+            // unchanged or unknown to OpenLibrary, checked again next round instead of every tick
+            (fetched == null ? unknownBooks : unchangedBooks).increment();
+            syncedIds.add(book.getId());
+          }
+          bookRepository.markSynced(syncedIds, now);
+        });
+
+    LOG.info("Refreshed metadata of {} books, {} failed", staleBooks.size(), failedIsbns.size());
+  }
+
+  private Map<String, Book> fetchMetadata(List<Book> books, Set<String> failedIsbns) {
+    List<List<String>> fetchBatches = new ArrayList<>();
+    for (int i = 0; i < books.size(); i += fetchBatchSize) {
+      fetchBatches.add(
+          books.subList(i, Math.min(i + fetchBatchSize, books.size())).stream()
+              .map(Book::getIsbn)
+              .toList());
+    }
+
+    Map<String, Book> fetchedBooks = new HashMap<>();
+    Flux.fromIterable(fetchBatches)
+        .flatMap(
+            isbns ->
+                openLibraryApiClient
+                    .fetchMetadataForBooksAsync(isbns)
+                    .onErrorResume(
+                        error -> {
+                          LOG.warn("Unable to refresh metadata of {} books", isbns.size(), error);
+                          synchronized (failedIsbns) {
+                            failedIsbns.addAll(isbns);
+                          }
+                          return Mono.just(List.of());
+                        }),
+            fetchParallelism)
+        .flatMapIterable(fetched -> fetched)
+        .doOnNext(book -> fetchedBooks.put(book.getIsbn(), book))
+        .blockLast();
+    return fetchedBooks;
+  }
+
+  // Only differing values are set, Hibernate's dirty checking then writes just these columns.
+  // Fields OpenLibrary doesn't know never replace what a feed or an earlier refresh stored.
+  private static boolean applyMetadata(Book book, Book fetched) {
+    boolean changed = apply(book.getTitle(), known(fetched.getTitle()), book::setTitle);
+    changed |= apply(book.getAuthor(), known(fetched.getAuthor()), book::setAuthor);
+    changed |= apply(book.getGenre(), known(fetched.getGenre()), book::setGenre);
+    changed |=
+        apply(book.getThumbnailUrl(), known(fetched.getThumbnailUrl()), book::setThumbnailUrl);
+    changed |= apply(book.getDescription(), known(fetched.getDescription()), book::setDescription);
+    changed |= apply(book.getPublisher(), known(fetched.getPublisher()), book::setPublisher);
+    Long pages = fetched.getPages() == null || fetched.getPages() <= 0 ? null : fetched.getPages();
+    changed |= apply(book.getPages(), pages, book::setPages);
+    return changed;
+  }
+
+  private static <T> boolean apply(T stored, T fetched, Consumer<T> setter) {
+    if (fetched == null || fetched.equals(stored)) {
+      return false;
+    }
+    setter.accept(fetched);
+    return true;
+  }
+
+  private static String known(String value) {
+    return StringUtils.hasText(value) && !OpenLibraryBookDecoder.isNotAvailable(value)
+        ? value
+        : null;
+  }
+}
@@ -0,0 +1,5 @@
+package de.rieckpil.courses.book.management;
+
+public interface BookNaturalIdRepository {
+  Book findByIsbn(String isbn);
+}
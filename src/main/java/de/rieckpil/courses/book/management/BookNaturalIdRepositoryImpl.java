@@ -0,0 +1,21 @@
+package de.rieckpil.courses.book.management;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+class BookNaturalIdRepositoryImpl implements BookNaturalIdRepository {
+
+  private final EntityManager entityManager;
+
+  BookNaturalIdRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  // resolves through the natural-id and entity caches instead of always querying by isbn
+  @Override
+  @Transactional(readOnly = true)
+  public Book findByIsbn(String isbn) {
+    return entityManager.unwrap(Session.class).bySimpleNaturalId(Book.class).load(isbn);
+  }
+}
@@ -1,7 +1,72 @@
 package de.rieckpil.courses.book.management;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface BookRepository
+    extends JpaRepository<Book, Long>, BookNaturalIdRepository, BookBatchRepository {
+
+  int MAX_RANKED_MATCHES = 1_000;
+
+  List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+  List<BookSummary> findSummariesByOrderByIdAsc();
+
+  // prefix lookup for suggestions on catalogs too large to index in memory, see V007
+  @Query(
+      "SELECT new de.rieckpil.courses.book.management.BookSummary(b.isbn, b.title, b.author,"
+          + " b.thumbnailUrl) FROM Book b WHERE LOWER(b.title) LIKE :prefix"
+          + " OR LOWER(b.author) LIKE :prefix OR b.isbn LIKE :prefix ORDER BY b.title, b.id")
+  List<BookSummary> findSummariesByPrefix(@Param("prefix") String prefix, Limit limit);
+
+  List<Book> findByIsbnIn(Collection<String> isbns);
+
+  @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+  Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+  @Query("SELECT new de.rieckpil.courses.book.management.BookIsbn(b.id, b.isbn) FROM Book b")
+  Stream<BookIsbn> streamAllIsbns();
+
+  // Only the first MAX_RANKED_MATCHES matches are ranked. Broad terms matching most of the catalog
+  // would otherwise rank every row before the page is cut, their best page is taken from the
+  // candidates instead; selective terms have fewer matches and are ranked completely.
+  @Query(
+      value =
+          "SELECT b.* FROM ("
+              + "SELECT books.*, ts_rank(books.search_vector, query) AS rank "
+              + "FROM books, websearch_to_tsquery('english', :query) query "
+              + "WHERE books.search_vector @@ query "
+              + "LIMIT "
+              + MAX_RANKED_MATCHES
+              + ") b "
+              + "ORDER BY b.rank DESC, b.id",
+      nativeQuery = true)
+  List<Book> search(@Param("query") String query, Pageable pageable);
+
+  // drawn by a trigger on every catalog change, also the ones of other instances
+  @Query(value = "SELECT last_value FROM book_catalog_version_seq", nativeQuery = true)
+  long findCatalogVersion();
+
+  @Query("SELECT MIN(b.lastSyncedAt) FROM Book b")
+  Optional<Instant> findOldestSyncedAt();
 
-public interface BookRepository extends JpaRepository<Book, Long> {
-  Book findByIsbn(String isbn);
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  Stream<Book> streamAllByOrderByIdAsc();
 }
@@ -0,0 +1,314 @@
+package de.rieckpil.courses.book.management;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Holds a sorted array of normalized title, author and ISBN keys of up to max-books books. Changes
+// are merged when their events arrive, by whichever thread holds the write lock, so a burst of
+// stored books costs one copy of the arrays per merge instead of one per book and lookups never
+// wait. Once the catalog outgrows max-books, the index is dropped and lookups fall back to a prefix
+// query, until a periodic count finds the catalog small enough to rebuild it in the background.
+@Component
+public class BookSuggestionIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSuggestionIndex.class.getName());
+
+  static final int MAX_KEY_LENGTH = 64;
+
+  private static final Entries NO_ENTRIES = new Entries(new String[0], new BookSummary[0]);
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{Alnum}]+");
+
+  private final BookRepository bookRepository;
+  private final int maxBooks;
+  private final long rebuildCheckIntervalNanos;
+
+  // writers copy the sorted arrays and swap them in, so lookups never have to lock
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Map<String, BookSummary> booksByIsbn = new HashMap<>();
+  // the latest change per ISBN, null marks a removal; only held briefly to hand changes over
+  private final ReentrantLock pendingChangesLock = new ReentrantLock();
+  private final Map<String, BookSummary> pendingChanges = new HashMap<>();
+  private volatile boolean hasPendingChanges;
+  private volatile boolean complete;
+  private volatile Entries entries = NO_ENTRIES;
+  private final AtomicLong nextRebuildCheck = new AtomicLong(System.nanoTime());
+
+  public BookSuggestionIndex(
+      BookRepository bookRepository,
+      @Value("${books.suggestions.max-books:200000}") int maxBooks,
+      @Value("${books.suggestions.rebuild-check-interval:PT1M}") Duration rebuildCheckInterval) {
+    this.bookRepository = bookRepository;
+    this.maxBooks = maxBooks;
+    this.rebuildCheckIntervalNanos = rebuildCheckInterval.toNanos();
+  }
+
+  @EventListener({ApplicationReadyEvent.class, BookCatalogReloadedEvent.class})
+  public void buildIndex() {
+    writeLock.lock();
+    try {
+      booksByIsbn.clear();
+
+      long catalogSize = bookRepository.count();
+      if (catalogSize > maxBooks) {
+        drop(catalogSize);
+        return;
+      }
+
+      for (BookSummary book : bookRepository.findSummariesByOrderByIdAsc()) {
+        booksByIsbn.put(book.isbn(), book);
+      }
+
+      List<Entry> indexEntries = new ArrayList<>();
+      booksByIsbn.values().forEach(book -> indexEntries.addAll(entriesOf(book)));
+      indexEntries.sort(Comparator.comparing(Entry::key));
+      entries = Entries.of(indexEntries);
+      complete = true;
+
+      LOG.info("Built suggestion index for {} books", booksByIsbn.size());
+    } finally {
+      writeLock.unlock();
+    }
+
+    // changes that arrived during the build might not be part of the loaded books, applying them
+    // again is harmless
+    applyPendingChanges();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookCatalogChanged(BookCatalogChangedEvent event) {
+    if (!complete && event.removed()) {
+      rebuildIfCatalogFits();
+    }
+
+    pendingChangesLock.lock();
+    try {
+      for (Book book : event.books()) {
+        pendingChanges.put(book.getIsbn(), event.removed() ? null : BookSummary.of(book));
+      }
+      hasPendingChanges = true;
+    } finally {
+      pendingChangesLock.unlock();
+    }
+
+    applyPendingChanges();
+  }
+
+  public List<BookSummary> suggest(String prefix, int limit) {
+    String key = normalize(prefix);
+
+    if (key.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+
+    if (!complete) {
+      // books removed by other instances publish no event here
+      rebuildIfCatalogFits();
+      // matches the raw columns, without the accent and punctuation folding of the index
+      return bookRepository.findSummariesByPrefix(key + "%", Limit.of(limit));
+    }
+
+    Entries current = entries;
+    Set<BookSummary> result = new LinkedHashSet<>();
+
+    for (int i = current.lowerBound(key);
+        i < current.keys().length && result.size() < limit && current.keys()[i].startsWith(key);
+        i++) {
+      result.add(current.books()[i]);
+    }
+
+    return List.copyOf(result);
+  }
+
+  // A thread that finds the write lock taken leaves its changes to the holder, which checks for
+  // more changes after unlocking, so no change is left behind and no event thread queues up.
+  private void applyPendingChanges() {
+    while (hasPendingChanges && writeLock.tryLock()) {
+      try {
+        mergePendingChanges();
+      } finally {
+        writeLock.unlock();
+      }
+    }
+  }
+
+  // sorts all collected additions once and merges them with a single copy of the arrays
+  private void mergePendingChanges() {
+    Map<String, BookSummary> changes;
+    pendingChangesLock.lock();
+    try {
+      changes = new HashMap<>(pendingChanges);
+      pendingChanges.clear();
+      hasPendingChanges = false;
+    } finally {
+      pendingChangesLock.unlock();
+    }
+
+    // without an index, the next build loads the changed books from the database
+    if (!complete) {
+      return;
+    }
+
+    Set<BookSummary> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Entry> added = new ArrayList<>();
+    changes.forEach(
+        (isbn, book) -> {
+          BookSummary previous =
+              book == null ? booksByIsbn.remove(isbn) : booksByIsbn.put(isbn, book);
+          if (previous != null) {
+            removed.add(previous);
+          }
+          if (book != null) {
+            added.addAll(entriesOf(book));
+          }
+        });
+
+    if (booksByIsbn.size() > maxBooks) {
+      drop(booksByIsbn.size());
+      return;
+    }
+
+    added.sort(Comparator.comparing(Entry::key));
+    entries = entries.merge(removed, added);
+  }
+
+  // counting scans the table, so it runs at most once per interval and off the calling thread
+  private void rebuildIfCatalogFits() {
+    long now = System.nanoTime();
+    long nextCheck = nextRebuildCheck.get();
+    if (now - nextCheck < 0
+        || !nextRebuildCheck.compareAndSet(nextCheck, now + rebuildCheckIntervalNanos)) {
+      return;
+    }
+
+    Thread.ofVirtual()
+        .name("book-suggestion-index")
+        .start(
+            () -> {
+              try {
+                if (!complete && bookRepository.count() <= maxBooks) {
+                  buildIndex();
+                }
+              } catch (RuntimeException e) {
+                LOG.warn("Unable to rebuild suggestion index", e);
+              }
+            });
+  }
+
+  private void drop(long catalogSize) {
+    complete = false;
+    booksByIsbn.clear();
+    entries = NO_ENTRIES;
+    nextRebuildCheck.set(System.nanoTime() + rebuildCheckIntervalNanos);
+    LOG.warn(
+        "Catalog of {} books exceeds the suggestion index limit of {}, querying the database",
+        catalogSize,
+        maxBooks);
+  }
+
+  static String normalize(String value) {
+    if (value == null) {
+      return "";
+    }
+
+    String normalized = Normalizer.normalize(value, Normalizer.Form.NFD);
+    normalized = DIACRITICS.matcher(normalized).replaceAll("");
+    normalized = NON_ALPHANUMERIC.matcher(normalized).replaceAll(" ").trim();
+    normalized = normalized.toLowerCase(Locale.ROOT);
+
+    return normalized.length() > MAX_KEY_LENGTH
+        ? normalized.substring(0, MAX_KEY_LENGTH)
+        : normalized;
+  }
+
+  private static List<Entry> entriesOf(BookSummary book) {
+    List<Entry> result = new ArrayList<>(3);
+    for (String value : Arrays.asList(book.isbn(), book.title(), book.author())) {
+      String key = normalize(value);
+      if (!key.isEmpty()) {
+        result.add(new Entry(key, book));
+      }
+    }
+    return result;
+  }
+
+  private record Entry(String key, BookSummary book) {}
+
+  private record Entries(String[] keys, BookSummary[] books) {
+
+    static Entries of(List<Entry> sortedEntries) {
+      String[] keys = new String[sortedEntries.size()];
+      BookSummary[] books = new BookSummary[sortedEntries.size()];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = sortedEntries.get(i).key();
+        books[i] = sortedEntries.get(i).book();
+      }
+      return new Entries(keys, books);
+    }
+
+    int lowerBound(String key) {
+      int low = 0;
+      int high = keys.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (keys[middle].compareTo(key) < 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    // drops all entries of the removed books and merges the sorted new entries in a single pass
+    Entries merge(Set<BookSummary> removed, List<Entry> sortedAdditions) {
+      String[] mergedKeys = new String[keys.length + sortedAdditions.size()];
+      BookSummary[] mergedBooks = new BookSummary[mergedKeys.length];
+
+      int size = 0;
+      int addition = 0;
+      for (int i = 0; i < keys.length; i++) {
+        if (removed.contains(books[i])) {
+          continue;
+        }
+        while (addition < sortedAdditions.size()
+            && sortedAdditions.get(addition).key().compareTo(keys[i]) < 0) {
+          mergedKeys[size] = sortedAdditions.get(addition).key();
+          mergedBooks[size++] = sortedAdditions.get(addition++).book();
+        }
+        mergedKeys[size] = keys[i];
+        mergedBooks[size++] = books[i];
+      }
+      while (addition < sortedAdditions.size()) {
+        mergedKeys[size] = sortedAdditions.get(addition).key();
+        mergedBooks[size++] = sortedAdditions.get(addition++).book();
+      }
+
+      return new Entries(Arrays.copyOf(mergedKeys, size), Arrays.copyOf(mergedBooks, size));
+    }
+  }
+}
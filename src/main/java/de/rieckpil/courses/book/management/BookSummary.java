@@ -0,0 +1,9 @@
+package de.rieckpil.courses.book.management;
+
+public record BookSummary(String isbn, String title, String author, String thumbnailUrl) {
+
+  public static BookSummary of(Book book) {
+    return new BookSummary(
+        book.getIsbn(), book.getTitle(), book.getAuthor(), book.getThumbnailUrl());
+  }
+}
@@ -0,0 +1,52 @@
+package de.rieckpil.courses.book.management;
+
+import io.awspring.cloud.sqs.listener.MessageListenerContainer;
+import io.awspring.cloud.sqs.listener.MessageListenerContainerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Stops polling the synchronization queue while the OpenLibrary circuit is open, messages stay
+// parked in SQS instead of failing one by one. Polling resumes once the circuit is half-open, so
+// the next message becomes the trial call.
+@Component
+public class BookSynchronizationBackpressure {
+
+  static final String LISTENER_ID = "book-synchronization";
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BookSynchronizationBackpressure.class.getName());
+
+  private final MessageListenerContainerRegistry messageListenerContainerRegistry;
+
+  public BookSynchronizationBackpressure(
+      MessageListenerContainerRegistry messageListenerContainerRegistry) {
+    this.messageListenerContainerRegistry = messageListenerContainerRegistry;
+  }
+
+  @EventListener
+  public void onCircuitStateChanged(OpenLibraryCircuitStateChangedEvent event) {
+    MessageListenerContainer<?> container =
+        messageListenerContainerRegistry.getContainerById(LISTENER_ID);
+
+    if (container == null) {
+      return;
+    }
+
+    // stopping waits for in-flight messages, which might be the caller itself
+    switch (event.state()) {
+      case OPEN -> {
+        LOG.warn("Pausing book synchronization while OpenLibrary is unavailable");
+        Mono.fromRunnable(container::stop).subscribeOn(Schedulers.boundedElastic()).subscribe();
+      }
+      case HALF_OPEN -> {
+        LOG.info("Resuming book synchronization to probe OpenLibrary");
+        Mono.fromRunnable(container::start).subscribeOn(Schedulers.boundedElastic()).subscribe();
+      }
+      case CLOSED -> {}
+    }
+  }
+}
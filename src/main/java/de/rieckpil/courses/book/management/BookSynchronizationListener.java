@@ -1,11 +1,18 @@
 package de.rieckpil.courses.book.management;
 
+import java.util.concurrent.CompletableFuture;
+
 import io.awspring.cloud.sqs.annotation.SqsListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 @Component
+@ConditionalOnProperty(
+    name = "sqs.book-synchronization-batch.enabled",
+    havingValue = "false",
+    matchIfMissing = true)
 public class BookSynchronizationListener {
 
   private static final Logger LOG =
@@ -13,32 +20,51 @@ public class BookSynchronizationListener {
 
   private final BookRepository bookRepository;
   private final OpenLibraryApiClient openLibraryApiClient;
+  private final BookIsbnIndex bookIsbnIndex;
 
   public BookSynchronizationListener(
-      BookRepository bookRepository, OpenLibraryApiClient openLibraryApiClient) {
+      BookRepository bookRepository,
+      OpenLibraryApiClient openLibraryApiClient,
+      BookIsbnIndex bookIsbnIndex) {
     this.bookRepository = bookRepository;
     this.openLibraryApiClient = openLibraryApiClient;
+    this.bookIsbnIndex = bookIsbnIndex;
   }
 
-  @SqsListener("${sqs.book-synchronization-queue}")
-  public void consumeBookUpdates(BookSynchronization bookSynchronization) {
+  // returning a future releases the listener thread during the remote call, the container keeps
+  // at most max-in-flight messages in progress
+  @SqsListener(
+      value = "${sqs.book-synchronization-queue}",
+      id = BookSynchronizationBackpressure.LISTENER_ID,
+      maxConcurrentMessages = "${sqs.book-synchronization-max-in-flight:10}")
+  public CompletableFuture<Void> consumeBookUpdates(BookSynchronization bookSynchronization) {
 
     String isbn = bookSynchronization.isbn();
     LOG.info("Incoming book update for isbn '{}'", isbn);
 
     if (isbn.length() != 13) {
       LOG.warn("Incoming isbn for book is not 13 characters long, rejecting it");
-      return;
+      return CompletableFuture.completedFuture(null);
     }
 
-    if (bookRepository.findByIsbn(isbn) != null) {
+    if (bookIsbnIndex.contains(isbn) || bookRepository.findByIsbn(isbn) != null) {
       LOG.debug("Book with isbn '{}' is already present, rejecting it", isbn);
-      return;
+      return CompletableFuture.completedFuture(null);
     }
 
-    Book book = openLibraryApiClient.fetchMetadataForBook(isbn);
-    book = bookRepository.save(book);
-
-    LOG.info("Successfully stored new book '{}'", book);
+    // the check above only saves the remote call, a concurrent consumer of a duplicate message
+    // might still store the book first
+    return openLibraryApiClient
+        .fetchMetadataForBookAsync(isbn)
+        .doOnNext(
+            book -> {
+              if (bookRepository.insertIfAbsent(book)) {
+                LOG.info("Successfully stored new book '{}'", book);
+              } else {
+                LOG.debug("Book with isbn '{}' was stored concurrently, skipping it", isbn);
+              }
+            })
+        .then()
+        .toFuture();
   }
 }
@@ -0,0 +1,170 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+// A directory of cache files, one level of shard directories deep, bounded by age and total size.
+// Entries are written to a temp file and atomically moved into place, so a crash never leaves a
+// partial entry behind and the size is recovered from the files on restart.
+final class CacheDirectory {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CacheDirectory.class);
+
+  private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+
+  private final Path directory;
+  private final Duration timeToLive;
+  private final long maxSizeInBytes;
+
+  private final AtomicLong sizeInBytes = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final Counter evictions;
+
+  CacheDirectory(
+      Path directory,
+      Duration timeToLive,
+      DataSize maxSize,
+      String metricName,
+      MeterRegistry meterRegistry) {
+    this.directory = directory;
+    this.timeToLive = timeToLive;
+    this.maxSizeInBytes = maxSize.toBytes();
+    this.evictions = meterRegistry.counter(metricName + ".evictions");
+
+    try {
+      Files.createDirectories(directory);
+      this.sizeInBytes.set(listEntries().stream().mapToLong(Entry::size).sum());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to open cache at " + directory, e);
+    }
+
+    meterRegistry.gauge(metricName + ".size", sizeInBytes);
+  }
+
+  Path resolve(String shard, String name) {
+    return directory.resolve(shard).resolve(name);
+  }
+
+  boolean isExpired(Path file) throws IOException {
+    return isExpired(Files.getLastModifiedTime(file));
+  }
+
+  void write(Path file, byte[] content) throws IOException {
+    Path temporaryFile = createTemporaryFile(file);
+    try {
+      Files.write(temporaryFile, content);
+      commit(temporaryFile, file);
+    } finally {
+      deleteTemporaryFile(temporaryFile);
+    }
+  }
+
+  // for content that is streamed into place, the temp file is moved by commit()
+  Path createTemporaryFile(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    return Files.createTempFile(
+        file.getParent(), file.getFileName().toString(), TEMPORARY_FILE_SUFFIX);
+  }
+
+  Path commit(Path temporaryFile, Path file) throws IOException {
+    long size = Files.size(temporaryFile);
+    long previousSize = Files.exists(file) ? Files.size(file) : 0;
+    Files.move(
+        temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    if (sizeInBytes.addAndGet(size - previousSize) > maxSizeInBytes) {
+      evict();
+    }
+    return file;
+  }
+
+  void deleteTemporaryFile(Path temporaryFile) {
+    try {
+      Files.deleteIfExists(temporaryFile);
+    } catch (IOException e) {
+      LOG.debug("Unable to delete temporary cache file {}", temporaryFile, e);
+    }
+  }
+
+  void delete(Path file) {
+    try {
+      long size = Files.size(file);
+      if (Files.deleteIfExists(file)) {
+        sizeInBytes.addAndGet(-size);
+      }
+    } catch (IOException e) {
+      LOG.debug("Unable to delete cache file {}", file, e);
+    }
+  }
+
+  // drops expired entries first and then the oldest ones until the cache is back at 90 % of its
+  // maximum size, concurrent writers skip eviction while one is running
+  private void evict() {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+
+    try {
+      long target = maxSizeInBytes / 10 * 9;
+      List<Entry> entries =
+          listEntries().stream().sorted(Comparator.comparing(Entry::lastModified)).toList();
+
+      for (Entry entry : entries) {
+        if (sizeInBytes.get() <= target && !isExpired(entry.lastModified())) {
+          break;
+        }
+        delete(entry.file());
+        evictions.increment();
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to evict entries from cache at {}", directory, e);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private boolean isExpired(FileTime lastModified) {
+    return lastModified.toInstant().plus(timeToLive).isBefore(Instant.now());
+  }
+
+  private List<Entry> listEntries() throws IOException {
+    try (Stream<Path> files = Files.walk(directory, 2)) {
+      return files
+          .filter(
+              file ->
+                  Files.isRegularFile(file)
+                      && !file.getFileName().toString().endsWith(TEMPORARY_FILE_SUFFIX))
+          .flatMap(
+              file -> {
+                try {
+                  return Stream.of(
+                      new Entry(file, Files.size(file), Files.getLastModifiedTime(file)));
+                } catch (IOException e) {
+                  // removed concurrently
+                  return Stream.empty();
+                }
+              })
+          .toList();
+    }
+  }
+
+  private record Entry(Path file, long size, FileTime lastModified) {}
+}
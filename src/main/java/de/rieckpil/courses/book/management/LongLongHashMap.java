@@ -0,0 +1,122 @@
+package de.rieckpil.courses.book.management;
+
+// open addressing with linear probing over two primitive arrays: no boxing, no entry objects and
+// 16 bytes per slot. Not thread-safe, callers have to synchronize.
+final class LongLongHashMap {
+
+  static final long NO_VALUE = -1L;
+
+  private static final long EMPTY = 0L;
+  private static final int MIN_CAPACITY = 16;
+
+  private long[] keys;
+  private long[] values;
+  private int mask;
+  private int size;
+
+  LongLongHashMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  int size() {
+    return size;
+  }
+
+  long get(long key) {
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      long current = keys[slot];
+      if (current == key) {
+        return values[slot];
+      }
+      if (current == EMPTY) {
+        return NO_VALUE;
+      }
+    }
+  }
+
+  void put(long key, long value) {
+    if (key <= EMPTY) {
+      throw new IllegalArgumentException("Only positive keys are supported, got " + key);
+    }
+
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      long current = keys[slot];
+      if (current == key) {
+        values[slot] = value;
+        return;
+      }
+      if (current == EMPTY) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (keys.length >>> 1)) {
+          resize(keys.length << 1);
+        }
+        return;
+      }
+    }
+  }
+
+  void remove(long key) {
+    int slot = slot(key);
+    while (keys[slot] != key) {
+      if (keys[slot] == EMPTY) {
+        return;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    // backward-shift deletion keeps probe sequences intact without tombstones
+    int gap = slot;
+    for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+      int home = slot(keys[next]);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+    }
+    keys[gap] = EMPTY;
+    values[gap] = EMPTY;
+    size--;
+  }
+
+  private int slot(long key) {
+    // murmur3 finalizer, ISBNs are mostly sequential and would cluster otherwise
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key & mask;
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    long[] oldValues = values;
+
+    allocate(capacity);
+    size = 0;
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    // keep the load factor at or below 0.5 for short probe sequences
+    long capacity =
+        Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, expectedSize) * 2L - 1) << 1);
+    if (capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Too many entries: " + expectedSize);
+    }
+    return (int) capacity;
+  }
+}
@@ -1,25 +1,121 @@
 package de.rieckpil.courses.book.management;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.util.retry.Retry;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Component
 public class OpenLibraryApiClient {
 
   private final WebClient openLibraryWebClient;
+  private final OpenLibraryMetadataCache metadataCache;
+  private final OpenLibraryConcurrencyLimiter concurrencyLimiter;
+  private final OpenLibraryCircuitBreaker circuitBreaker;
+  private final OpenLibraryRetryPolicy retryPolicy;
+  private final SingleFlight<byte[]> metadataFetches;
 
-  public OpenLibraryApiClient(WebClient openLibraryWebClient) {
+  public OpenLibraryApiClient(
+      WebClient openLibraryWebClient,
+      OpenLibraryMetadataCache metadataCache,
+      OpenLibraryConcurrencyLimiter concurrencyLimiter,
+      OpenLibraryCircuitBreaker circuitBreaker,
+      OpenLibraryRetryPolicy retryPolicy,
+      MeterRegistry meterRegistry) {
     this.openLibraryWebClient = openLibraryWebClient;
+    this.metadataCache = metadataCache;
+    this.concurrencyLimiter = concurrencyLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.retryPolicy = retryPolicy;
+    this.metadataFetches =
+        new SingleFlight<>(
+            meterRegistry.counter("openlibrary.fetches.coalesced", "client", "webclient"));
+    meterRegistry.gauge(
+        "openlibrary.fetches.in-flight",
+        Tags.of("client", "webclient"),
+        metadataFetches,
+        SingleFlight::inFlightCalls);
   }
 
   public Book fetchMetadataForBook(String isbn) {
+    return fetchMetadataForBookAsync(isbn).block();
+  }
+
+  public Mono<Book> fetchMetadataForBookAsync(String isbn) {
+    Optional<byte[]> cachedContent = metadataCache.get(isbn);
+    if (cachedContent.isPresent()) {
+      return Mono.fromCallable(() -> OpenLibraryBookDecoder.decode(isbn, cachedContent.get()));
+    }
+
+    // duplicate messages for one ISBN share the remote call, every caller gets its own Book
+    return Mono.defer(
+            () ->
+                Mono.fromFuture(
+                    metadataFetches.execute(
+                        isbn,
+                        () ->
+                            fetchMetadata(isbn)
+                                .mapNotNull(
+                                    response ->
+                                        OpenLibraryBookDecoder.splitByIsbn(response, Set.of(isbn))
+                                            .get(isbn))
+                                .doOnNext(content -> metadataCache.put(isbn, content))
+                                .toFuture()),
+                    true))
+        .switchIfEmpty(
+            Mono.error(() -> new IllegalStateException("No metadata found for isbn " + isbn)))
+        .map(content -> OpenLibraryBookDecoder.decode(isbn, content));
+  }
+
+  public List<Book> fetchMetadataForBooks(Collection<String> isbns) {
+    return fetchMetadataForBooksAsync(isbns).block();
+  }
+
+  // OpenLibrary resolves a comma-separated list of bibkeys with a single request, unknown ISBNs
+  // are missing from the response and skipped
+  public Mono<List<Book>> fetchMetadataForBooksAsync(Collection<String> isbns) {
+    List<Book> books = new ArrayList<>(isbns.size());
+    List<String> missingIsbns = new ArrayList<>();
+    for (String isbn : isbns) {
+      metadataCache
+          .get(isbn)
+          .ifPresentOrElse(
+              content -> books.add(OpenLibraryBookDecoder.decode(isbn, content)),
+              () -> missingIsbns.add(isbn));
+    }
 
-    ObjectNode result =
+    if (missingIsbns.isEmpty()) {
+      return Mono.just(books);
+    }
+
+    return fetchMetadata(String.join(",", missingIsbns))
+        .map(
+            response -> {
+              Map<String, byte[]> contents =
+                  OpenLibraryBookDecoder.splitByIsbn(response, missingIsbns);
+              for (String isbn : missingIsbns) {
+                byte[] content = contents.get(isbn);
+                if (content != null) {
+                  metadataCache.put(isbn, content);
+                  books.add(OpenLibraryBookDecoder.decode(isbn, content));
+                }
+              }
+              return books;
+            });
+  }
+
+  // the raw body is kept, the decoder only reads the requested ISBNs and mapped fields of it
+  private Mono<byte[]> fetchMetadata(String bibkeys) {
+    Mono<byte[]> request =
         openLibraryWebClient
             .get()
             .uri(
@@ -28,31 +124,16 @@ public class OpenLibraryApiClient {
                     uriBuilder
                         .queryParam("jscmd", "data")
                         .queryParam("format", "json")
-                        .queryParam("bibkeys", isbn)
+                        .queryParam("bibkeys", bibkeys)
                         .build())
             .retrieve()
-            .bodyToMono(ObjectNode.class)
-            .retryWhen(Retry.fixedDelay(2, Duration.ofMillis(200)))
-            .block();
-
-    JsonNode content = result.get(isbn);
-
-    return convertToBook(isbn, content);
-  }
+            .bodyToMono(byte[].class);
 
-  private Book convertToBook(String isbn, JsonNode content) {
-    Book book = new Book();
-    book.setIsbn(isbn);
-    book.setThumbnailUrl(content.get("cover").get("small").asText());
-    book.setTitle(content.get("title").asText());
-    book.setAuthor(content.get("authors").get(0).get("name").asText());
-    book.setPublisher(content.get("publishers").get(0).get("name").asText("n.A."));
-    book.setPages(content.get("number_of_pages").asLong(0));
-    book.setDescription(content.get("notes") == null ? "n.A" : content.get("notes").asText("n.A."));
-    book.setGenre(
-        content.get("subjects") == null
-            ? "n.A"
-            : content.get("subjects").get(0).get("name").asText("n.A."));
-    return book;
+    // every attempt, including retries, needs a permit of the limiter while the circuit breaker
+    // judges the call as a whole
+    return circuitBreaker
+        .execute(retryPolicy.execute(concurrencyLimiter.execute(request)))
+        // callers write to the disk cache and the database, keep that off the event loop
+        .publishOn(Schedulers.boundedElastic());
   }
 }
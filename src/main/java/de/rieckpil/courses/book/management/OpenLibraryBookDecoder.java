@@ -0,0 +1,165 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+// Streams OpenLibrary responses token by token instead of building a JsonNode tree: only the
+// fields mapped to Book are read, everything else is skipped without being materialized.
+final class OpenLibraryBookDecoder {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final String NOT_AVAILABLE = "n.A.";
+
+  private OpenLibraryBookDecoder() {}
+
+  // the placeholders decode() fills in for fields OpenLibrary doesn't know
+  static boolean isNotAvailable(String value) {
+    return "n.A".equals(value) || NOT_AVAILABLE.equals(value);
+  }
+
+  // extracts the raw object of every requested ISBN from a /api/books response, the raw bytes are
+  // what the metadata cache stores
+  static Map<String, byte[]> splitByIsbn(byte[] response, Collection<String> isbns) {
+    Set<String> requestedIsbns = isbns instanceof Set<String> set ? set : new HashSet<>(isbns);
+    Map<String, byte[]> result = new HashMap<>();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(response)) {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String isbn = parser.currentName();
+
+        if (parser.nextToken() == JsonToken.START_OBJECT && requestedIsbns.contains(isbn)) {
+          // slice the object out of the response instead of re-serializing it token by token
+          int start = (int) parser.currentTokenLocation().getByteOffset();
+          parser.skipChildren();
+          int end = (int) parser.currentLocation().getByteOffset();
+          result.put(isbn, Arrays.copyOfRange(response, start, end));
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to parse OpenLibrary response", e);
+    }
+
+    return result;
+  }
+
+  static Book decode(String isbn, byte[] content) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    // books.title is NOT NULL, one title-less record would fail a whole batch insert
+    book.setTitle(NOT_AVAILABLE);
+    book.setPages(0L);
+    book.setDescription("n.A");
+    book.setGenre("n.A");
+
+    try (JsonParser parser = JSON_FACTORY.createParser(content)) {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+
+        switch (field) {
+          case "title" -> book.setTitle(orNotAvailable(readText(parser, null)));
+          case "cover" -> book.setThumbnailUrl(readField(parser, "small"));
+          case "authors" -> book.setAuthor(readFirstName(parser));
+          case "publishers" -> book.setPublisher(orNotAvailable(readFirstName(parser)));
+          case "number_of_pages" -> book.setPages(readLong(parser));
+          case "notes" -> book.setDescription(readText(parser, NOT_AVAILABLE));
+          case "subjects" -> book.setGenre(orNotAvailable(readFirstName(parser)));
+          default -> parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to parse OpenLibrary metadata for isbn " + isbn, e);
+    }
+
+    return book;
+  }
+
+  // reads the value the parser points at, objects and arrays have no text and are skipped
+  private static String readText(JsonParser parser, String defaultValue) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return defaultValue;
+    }
+    if (token.isStructStart()) {
+      parser.skipChildren();
+      return "";
+    }
+    return parser.getValueAsString();
+  }
+
+  private static long readLong(JsonParser parser) throws IOException {
+    if (parser.currentToken().isStructStart()) {
+      parser.skipChildren();
+      return 0;
+    }
+    return parser.getValueAsLong(0);
+  }
+
+  private static String readField(JsonParser parser, String name) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+
+    String value = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      boolean matches = name.equals(parser.currentName());
+      parser.nextToken();
+      if (matches) {
+        value = readText(parser, null);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return value;
+  }
+
+  // OpenLibrary lists authors, publishers and subjects as arrays of objects with a name
+  private static String readFirstName(JsonParser parser) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return null;
+    }
+
+    String name = null;
+    boolean first = true;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (first) {
+        name = readField(parser, "name");
+        first = false;
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return name;
+  }
+
+  private static String orNotAvailable(String value) {
+    return value == null || value.isBlank() ? NOT_AVAILABLE : value;
+  }
+
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+      throws JsonParseException {
+    if (actual != expected) {
+      throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+// Opens after a number of consecutive overload failures and fails calls immediately while open.
+// After the open duration a single trial call is let through: success closes the circuit, another
+// failure opens it again. Every transition is published as OpenLibraryCircuitStateChangedEvent.
+@Component
+public class OpenLibraryCircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OpenLibraryCircuitBreaker.class);
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final ApplicationEventPublisher applicationEventPublisher;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openedAtNanos;
+  private boolean trialCallInFlight;
+
+  private final Counter rejections;
+
+  public OpenLibraryCircuitBreaker(
+      @Value("${clients.open-library.circuit-breaker.failure-threshold:5}") int failureThreshold,
+      @Value("${clients.open-library.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+      ApplicationEventPublisher applicationEventPublisher,
+      MeterRegistry meterRegistry) {
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.applicationEventPublisher = applicationEventPublisher;
+
+    this.rejections = meterRegistry.counter("openlibrary.circuit-breaker.rejections");
+    for (State candidate : State.values()) {
+      meterRegistry.gauge(
+          "openlibrary.circuit-breaker.state",
+          Tags.of("state", candidate.name().toLowerCase()),
+          this,
+          breaker -> breaker.getState() == candidate ? 1 : 0);
+    }
+  }
+
+  public <T> Mono<T> execute(Mono<T> call) {
+    return Mono.defer(
+        () -> {
+          if (!tryAcquirePermission()) {
+            rejections.increment();
+            return Mono.error(unavailable());
+          }
+          return call.doOnSuccess(result -> onSuccess())
+              .doOnError(this::onError)
+              .doOnCancel(this::releaseTrialCall);
+        });
+  }
+
+  public <T> T executeBlocking(Supplier<T> call) {
+    if (!tryAcquirePermission()) {
+      rejections.increment();
+      throw unavailable();
+    }
+
+    try {
+      T result = call.get();
+      onSuccess();
+      return result;
+    } catch (RuntimeException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  private boolean tryAcquirePermission() {
+    boolean halfOpened = false;
+
+    synchronized (this) {
+      if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDuration.toNanos()) {
+        state = State.HALF_OPEN;
+        halfOpened = true;
+      }
+
+      if (state == State.HALF_OPEN && !trialCallInFlight) {
+        trialCallInFlight = true;
+      } else if (state != State.CLOSED) {
+        return false;
+      }
+    }
+
+    if (halfOpened) {
+      publish(State.HALF_OPEN);
+    }
+    return true;
+  }
+
+  private void onSuccess() {
+    boolean closed = false;
+
+    synchronized (this) {
+      consecutiveFailures = 0;
+      if (state == State.HALF_OPEN) {
+        state = State.CLOSED;
+        trialCallInFlight = false;
+        closed = true;
+      }
+    }
+
+    if (closed) {
+      publish(State.CLOSED);
+    }
+  }
+
+  // Client error responses for a single ISBN prove OpenLibrary is reachable and count as success.
+  // Errors that never got an answer from OpenLibrary, like a rejection of the full limiter queue
+  // or a failing codec, say nothing about its health and leave the state as it is.
+  private void onError(Throwable error) {
+    if (OpenLibraryFailures.isClientError(error)) {
+      onSuccess();
+      return;
+    }
+    if (!OpenLibraryFailures.isOverload(error)) {
+      releaseTrialCall();
+      return;
+    }
+
+    boolean opened = false;
+
+    synchronized (this) {
+      consecutiveFailures++;
+      if (state == State.HALF_OPEN
+          || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        trialCallInFlight = false;
+        opened = true;
+      }
+    }
+
+    if (opened) {
+      publish(State.OPEN);
+      // nobody might call while open, e.g. with a paused listener, so half-open proactively
+      Mono.delay(openDuration).subscribe(tick -> tryHalfOpen());
+    }
+  }
+
+  private void releaseTrialCall() {
+    synchronized (this) {
+      trialCallInFlight = false;
+    }
+  }
+
+  private void tryHalfOpen() {
+    synchronized (this) {
+      if (state != State.OPEN || System.nanoTime() - openedAtNanos < openDuration.toNanos()) {
+        return;
+      }
+      state = State.HALF_OPEN;
+    }
+    publish(State.HALF_OPEN);
+  }
+
+  private void publish(State newState) {
+    LOG.info("OpenLibrary circuit breaker is now {}", newState);
+    applicationEventPublisher.publishEvent(new OpenLibraryCircuitStateChangedEvent(newState));
+  }
+
+  private OpenLibraryUnavailableException unavailable() {
+    return new OpenLibraryUnavailableException(
+        "OpenLibrary circuit breaker is " + getState() + ", not calling it");
+  }
+}
@@ -0,0 +1,155 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+// AIMD limit for concurrent OpenLibrary requests: every fast success while the limit is actually
+// used grows it by one, every overload signal (429, 5xx, timeout or a response slower than the
+// latency threshold) shrinks it by the backoff ratio. Calls above the limit wait in a bounded
+// queue and are rejected once it is full.
+@Component
+public class OpenLibraryConcurrencyLimiter {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueueSize;
+  private final double backoffRatio;
+  private final long latencyThresholdNanos;
+
+  private final Queue<MonoSink<Permit>> waiters = new ArrayDeque<>();
+  private double limit;
+  private int inFlight;
+
+  private final Counter rejections;
+
+  public OpenLibraryConcurrencyLimiter(
+      @Value("${clients.open-library.concurrency.initial-limit:10}") int initialLimit,
+      @Value("${clients.open-library.concurrency.min-limit:1}") int minLimit,
+      @Value("${clients.open-library.concurrency.max-limit:100}") int maxLimit,
+      @Value("${clients.open-library.concurrency.max-queue-size:200}") int maxQueueSize,
+      @Value("${clients.open-library.concurrency.backoff-ratio:0.9}") double backoffRatio,
+      @Value("${clients.open-library.concurrency.latency-threshold:PT1S}")
+          Duration latencyThreshold,
+      MeterRegistry meterRegistry) {
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueueSize = maxQueueSize;
+    this.backoffRatio = backoffRatio;
+    this.latencyThresholdNanos = latencyThreshold.toNanos();
+
+    this.rejections = meterRegistry.counter("openlibrary.concurrency.rejections");
+    meterRegistry.gauge(
+        "openlibrary.concurrency.limit", this, OpenLibraryConcurrencyLimiter::getLimit);
+    meterRegistry.gauge(
+        "openlibrary.concurrency.in-flight", this, OpenLibraryConcurrencyLimiter::getInFlight);
+    meterRegistry.gauge(
+        "openlibrary.concurrency.queue-depth", this, OpenLibraryConcurrencyLimiter::getQueueDepth);
+  }
+
+  public <T> Mono<T> execute(Mono<T> call) {
+    return Mono.usingWhen(
+        acquire(),
+        permit -> call,
+        permit -> Mono.fromRunnable(() -> release(permit, Outcome.SUCCESS)),
+        (permit, error) ->
+            Mono.fromRunnable(
+                () ->
+                    release(
+                        permit,
+                        OpenLibraryFailures.isOverload(error) ? Outcome.DROPPED : Outcome.IGNORED)),
+        permit -> Mono.fromRunnable(() -> release(permit, Outcome.IGNORED)));
+  }
+
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  public synchronized int getQueueDepth() {
+    return waiters.size();
+  }
+
+  private Mono<Permit> acquire() {
+    return Mono.<Permit>create(
+            sink -> {
+              Permit permit = null;
+              boolean rejected = false;
+
+              synchronized (this) {
+                if (inFlight < (int) limit) {
+                  inFlight++;
+                  permit = new Permit(System.nanoTime());
+                } else if (waiters.size() >= maxQueueSize) {
+                  rejected = true;
+                } else {
+                  waiters.add(sink);
+                  sink.onCancel(() -> removeWaiter(sink));
+                }
+              }
+
+              if (permit != null) {
+                sink.success(permit);
+              } else if (rejected) {
+                rejections.increment();
+                sink.error(
+                    new RejectedExecutionException(
+                        "Too many pending OpenLibrary requests, limit is " + getLimit()));
+              }
+            })
+        // a permit granted to an already cancelled waiter is discarded and has to be returned
+        .doOnDiscard(Permit.class, permit -> release(permit, Outcome.IGNORED));
+  }
+
+  private void release(Permit permit, Outcome outcome) {
+    List<MonoSink<Permit>> granted = new ArrayList<>();
+
+    synchronized (this) {
+      boolean slow = System.nanoTime() - permit.startNanos() > latencyThresholdNanos;
+
+      if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && slow)) {
+        limit = Math.max(minLimit, limit * backoffRatio);
+      } else if (outcome == Outcome.SUCCESS && inFlight * 2 >= limit) {
+        // only grow while the current limit is actually used, otherwise it drifts up unbounded
+        limit = Math.min(maxLimit, limit + 1);
+      }
+
+      inFlight--;
+
+      while (inFlight < (int) limit && !waiters.isEmpty()) {
+        inFlight++;
+        granted.add(waiters.poll());
+      }
+    }
+
+    for (MonoSink<Permit> waiter : granted) {
+      waiter.success(new Permit(System.nanoTime()));
+    }
+  }
+
+  private synchronized void removeWaiter(MonoSink<Permit> sink) {
+    waiters.remove(sink);
+  }
+
+  private enum Outcome {
+    SUCCESS,
+    DROPPED,
+    IGNORED
+  }
+
+  private record Permit(long startNanos) {}
+}
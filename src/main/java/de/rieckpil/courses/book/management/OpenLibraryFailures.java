@@ -0,0 +1,61 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+final class OpenLibraryFailures {
+
+  private OpenLibraryFailures() {}
+
+  // signals that OpenLibrary is overloaded or unreachable, as opposed to answering with a client
+  // error for a single ISBN; exhausted retries and other wrappers are unwrapped
+  static boolean isOverload(Throwable error) {
+    for (Throwable current = error; current != null; current = current.getCause()) {
+      // a response that failed while reading the body keeps its 2xx status, the cause decides
+      if (current instanceof WebClientResponseException responseException
+          && responseException.getStatusCode().isError()) {
+        return isOverload(responseException.getStatusCode().value());
+      }
+      if (current instanceof RestClientResponseException responseException) {
+        return isOverload(responseException.getStatusCode().value());
+      }
+      // connect and read timeouts surface as request exceptions or plain Netty timeouts
+      if (current instanceof WebClientRequestException
+          || current instanceof ResourceAccessException
+          || current instanceof TimeoutException
+          || current instanceof io.netty.handler.timeout.TimeoutException
+          || current instanceof IOException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // a client error response for a single ISBN, OpenLibrary answered and is reachable
+  static boolean isClientError(Throwable error) {
+    for (Throwable current = error; current != null; current = current.getCause()) {
+      if (current instanceof WebClientResponseException responseException
+          && responseException.getStatusCode().isError()) {
+        return isClientError(responseException.getStatusCode().value());
+      }
+      if (current instanceof RestClientResponseException responseException) {
+        return isClientError(responseException.getStatusCode().value());
+      }
+    }
+    return false;
+  }
+
+  private static boolean isClientError(int statusCode) {
+    return statusCode >= 400 && statusCode < 500 && !isOverload(statusCode);
+  }
+
+  private static boolean isOverload(int statusCode) {
+    return statusCode >= 500 || statusCode == HttpStatus.TOO_MANY_REQUESTS.value();
+  }
+}
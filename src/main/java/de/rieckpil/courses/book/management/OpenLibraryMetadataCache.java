@@ -0,0 +1,90 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+// Keeps the raw OpenLibrary JSON of each ISBN in its own file below a shard directory, so the
+// cache survives restarts without a separate index.
+@Component
+public class OpenLibraryMetadataCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OpenLibraryMetadataCache.class);
+
+  private static final Pattern CACHEABLE_ISBN = Pattern.compile("\\d{9}[\\dX]|\\d{13}");
+
+  private final CacheDirectory cacheDirectory;
+
+  private final Counter hits;
+  private final Counter misses;
+
+  public OpenLibraryMetadataCache(
+      @Value("${clients.open-library.cache.directory:${java.io.tmpdir}/openlibrary-cache}")
+          Path directory,
+      @Value("${clients.open-library.cache.time-to-live:P7D}") Duration timeToLive,
+      @Value("${clients.open-library.cache.max-size:256MB}") DataSize maxSize,
+      MeterRegistry meterRegistry) {
+    this.cacheDirectory =
+        new CacheDirectory(
+            directory, timeToLive, maxSize, "openlibrary.metadata.cache", meterRegistry);
+    this.hits = meterRegistry.counter("openlibrary.metadata.cache", "result", "hit");
+    this.misses = meterRegistry.counter("openlibrary.metadata.cache", "result", "miss");
+  }
+
+  public Optional<byte[]> get(String isbn) {
+    if (!CACHEABLE_ISBN.matcher(isbn).matches()) {
+      return Optional.empty();
+    }
+
+    Path file = fileFor(isbn);
+    try {
+      if (cacheDirectory.isExpired(file)) {
+        cacheDirectory.delete(file);
+        misses.increment();
+        return Optional.empty();
+      }
+
+      byte[] content = Files.readAllBytes(file);
+      hits.increment();
+      return Optional.of(content);
+    } catch (NoSuchFileException e) {
+      misses.increment();
+      return Optional.empty();
+    } catch (IOException e) {
+      LOG.warn("Unable to read cached metadata for isbn '{}', refetching it", isbn, e);
+      cacheDirectory.delete(file);
+      misses.increment();
+      return Optional.empty();
+    }
+  }
+
+  // failing to cache must never fail the fetch, the entry is simply refetched next time
+  public void put(String isbn, byte[] content) {
+    if (content == null || !CACHEABLE_ISBN.matcher(isbn).matches()) {
+      return;
+    }
+
+    try {
+      cacheDirectory.write(fileFor(isbn), content);
+    } catch (IOException e) {
+      LOG.warn("Unable to cache metadata for isbn '{}'", isbn, e);
+    }
+  }
+
+  private Path fileFor(String isbn) {
+    // the trailing digits of an ISBN are evenly distributed, the leading ones are not
+    return cacheDirectory.resolve(isbn.substring(isbn.length() - 2), isbn + ".json");
+  }
+}
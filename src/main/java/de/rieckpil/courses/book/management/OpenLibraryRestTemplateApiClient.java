@@ -2,14 +2,18 @@ package de.rieckpil.courses.book.management;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
@@ -17,11 +21,30 @@ import org.springframework.web.client.RestTemplate;
 public class OpenLibraryRestTemplateApiClient {
 
   private final RestTemplate restTemplate;
+  private final OpenLibraryMetadataCache metadataCache;
+  private final OpenLibraryCircuitBreaker circuitBreaker;
+  private final SingleFlight<byte[]> metadataFetches;
 
-  public OpenLibraryRestTemplateApiClient(RestTemplateBuilder restTemplateBuilder) {
+  public OpenLibraryRestTemplateApiClient(
+      RestTemplateBuilder restTemplateBuilder,
+      CloseableHttpClient openLibraryHttpClient,
+      OpenLibraryMetadataCache metadataCache,
+      OpenLibraryCircuitBreaker circuitBreaker,
+      MeterRegistry meterRegistry) {
+    this.metadataCache = metadataCache;
+    this.circuitBreaker = circuitBreaker;
+    this.metadataFetches =
+        new SingleFlight<>(
+            meterRegistry.counter("openlibrary.fetches.coalesced", "client", "resttemplate"));
+    meterRegistry.gauge(
+        "openlibrary.fetches.in-flight",
+        Tags.of("client", "resttemplate"),
+        metadataFetches,
+        SingleFlight::inFlightCalls);
     this.restTemplate =
         restTemplateBuilder
             .rootUri("https://openlibrary.org")
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(openLibraryHttpClient))
             .setConnectTimeout(Duration.ofSeconds(2))
             .setReadTimeout(Duration.ofSeconds(2))
             .build();
@@ -29,6 +52,21 @@ public class OpenLibraryRestTemplateApiClient {
 
   public Book fetchMetadataForBook(String isbn) {
 
+    Optional<byte[]> cachedContent = metadataCache.get(isbn);
+    if (cachedContent.isPresent()) {
+      return OpenLibraryBookDecoder.decode(isbn, cachedContent.get());
+    }
+
+    // duplicate messages for one ISBN share the remote call, every caller gets its own Book
+    byte[] content =
+        metadataFetches.executeBlocking(
+            isbn, () -> circuitBreaker.executeBlocking(() -> fetchMetadata(isbn)));
+
+    return OpenLibraryBookDecoder.decode(isbn, content);
+  }
+
+  private byte[] fetchMetadata(String isbn) {
+
     HttpHeaders headers = new HttpHeaders();
     headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
     headers.set("X-Custom-Auth", "Duke42");
@@ -36,34 +74,22 @@ public class OpenLibraryRestTemplateApiClient {
 
     HttpEntity<Void> entity = new HttpEntity<>(headers);
 
-    ObjectNode result =
+    byte[] response =
         restTemplate
             .exchange(
                 "/api/books?jscmd=data&format=json&bibkeys={isbn}",
                 HttpMethod.GET,
                 entity,
-                ObjectNode.class,
+                byte[].class,
                 isbn)
             .getBody();
 
-    JsonNode content = result.get(isbn);
-
-    return convertToBook(isbn, content);
-  }
+    byte[] content = OpenLibraryBookDecoder.splitByIsbn(response, Set.of(isbn)).get(isbn);
+    if (content == null) {
+      throw new IllegalStateException("No metadata found for isbn " + isbn);
+    }
+    metadataCache.put(isbn, content);
 
-  private Book convertToBook(String isbn, JsonNode content) {
-    Book book = new Book();
-    book.setIsbn(isbn);
-    book.setThumbnailUrl(content.get("cover").get("small").asText());
-    book.setTitle(content.get("title").asText());
-    book.setAuthor(content.get("authors").get(0).get("name").asText());
-    book.setPublisher(content.get("publishers").get(0).get("name").asText("n.A."));
-    book.setPages(content.get("number_of_pages").asLong(0));
-    book.setDescription(content.get("notes") == null ? "n.A" : content.get("notes").asText("n.A."));
-    book.setGenre(
-        content.get("subjects") == null
-            ? "n.A"
-            : content.get("subjects").get(0).get("name").asText("n.A."));
-    return book;
+    return content;
   }
 }
@@ -0,0 +1,94 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+// Retries overload failures with exponential backoff and full jitter, so retries of concurrent
+// callers don't line up. A process-wide token bucket caps the share of retries: every retry takes
+// a token, every success returns a fraction of one, and retries are suppressed once the bucket is
+// empty, so an outage can't multiply the load on OpenLibrary.
+@Component
+public class OpenLibraryRetryPolicy {
+
+  private final int maxRetries;
+  private final long minBackoffNanos;
+  private final long maxBackoffNanos;
+  private final double maxTokens;
+  private final double tokensPerSuccess;
+
+  private double tokens;
+
+  private final Counter attemptedRetries;
+  private final Counter suppressedRetries;
+
+  public OpenLibraryRetryPolicy(
+      @Value("${clients.open-library.retry.max-retries:2}") int maxRetries,
+      @Value("${clients.open-library.retry.min-backoff:PT0.1S}") Duration minBackoff,
+      @Value("${clients.open-library.retry.max-backoff:PT2S}") Duration maxBackoff,
+      @Value("${clients.open-library.retry.budget.max-tokens:10}") double maxTokens,
+      @Value("${clients.open-library.retry.budget.tokens-per-success:0.1}") double tokensPerSuccess,
+      MeterRegistry meterRegistry) {
+    this.maxRetries = maxRetries;
+    this.minBackoffNanos = minBackoff.toNanos();
+    this.maxBackoffNanos = maxBackoff.toNanos();
+    this.maxTokens = maxTokens;
+    this.tokensPerSuccess = tokensPerSuccess;
+    this.tokens = maxTokens;
+
+    this.attemptedRetries = meterRegistry.counter("openlibrary.retries", "outcome", "attempted");
+    this.suppressedRetries = meterRegistry.counter("openlibrary.retries", "outcome", "suppressed");
+    meterRegistry.gauge(
+        "openlibrary.retries.budget", this, OpenLibraryRetryPolicy::getAvailableTokens);
+  }
+
+  public <T> Mono<T> execute(Mono<T> attempt) {
+    return attempt
+        .doOnSuccess(result -> depositToken())
+        .retryWhen(Retry.from(signals -> signals.concatMap(this::nextRetry)));
+  }
+
+  public synchronized double getAvailableTokens() {
+    return tokens;
+  }
+
+  private Mono<Long> nextRetry(Retry.RetrySignal signal) {
+    Throwable failure = signal.failure();
+
+    // client errors and unparsable responses fail the same way on every attempt
+    if (!OpenLibraryFailures.isOverload(failure) || signal.totalRetries() >= maxRetries) {
+      return Mono.error(failure);
+    }
+
+    if (!tryWithdrawToken()) {
+      suppressedRetries.increment();
+      return Mono.error(failure);
+    }
+
+    attemptedRetries.increment();
+    return Mono.delay(backoff(signal.totalRetries()));
+  }
+
+  Duration backoff(long retry) {
+    long ceiling = Math.min(maxBackoffNanos, minBackoffNanos << Math.min(retry, 30));
+    return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+  }
+
+  private synchronized boolean tryWithdrawToken() {
+    if (tokens < 1) {
+      return false;
+    }
+    tokens--;
+    return true;
+  }
+
+  private synchronized void depositToken() {
+    tokens = Math.min(maxTokens, tokens + tokensPerSuccess);
+  }
+}
@@ -0,0 +1,11 @@
+package de.rieckpil.courses.book.management;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OpenLibraryUnavailableException extends RuntimeException {
+  public OpenLibraryUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,67 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+
+// Concurrent callers for the same key share one outstanding call instead of each starting their
+// own. The entry is removed before the result is published, so callers arriving afterwards start a
+// fresh call. Shared results must be treated as immutable.
+final class SingleFlight<V> {
+
+  private final ConcurrentMap<String, CompletableFuture<V>> inFlightCalls =
+      new ConcurrentHashMap<>();
+  private final Counter coalescedCalls;
+
+  SingleFlight(Counter coalescedCalls) {
+    this.coalescedCalls = coalescedCalls;
+  }
+
+  CompletableFuture<V> execute(String key, Supplier<CompletableFuture<V>> call) {
+    CompletableFuture<V> result = new CompletableFuture<>();
+    CompletableFuture<V> inFlightCall = inFlightCalls.putIfAbsent(key, result);
+
+    if (inFlightCall != null) {
+      coalescedCalls.increment();
+      return inFlightCall;
+    }
+
+    try {
+      call.get()
+          .whenComplete(
+              (value, error) -> {
+                inFlightCalls.remove(key, result);
+                if (error != null) {
+                  result.completeExceptionally(error);
+                } else {
+                  result.complete(value);
+                }
+              });
+    } catch (RuntimeException e) {
+      inFlightCalls.remove(key, result);
+      result.completeExceptionally(e);
+    }
+
+    return result;
+  }
+
+  // blocking variant for synchronous clients, the caller runs the call itself if it's the first
+  V executeBlocking(String key, Supplier<V> call) {
+    try {
+      return execute(key, () -> CompletableFuture.completedFuture(call.get())).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  int inFlightCalls() {
+    return inFlightCalls.size();
+  }
+}
@@ -3,11 +3,13 @@ package de.rieckpil.courses.book.review;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.OptionalLong;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.rieckpil.courses.book.management.Book;
+import de.rieckpil.courses.book.management.BookIsbnIndex;
 import de.rieckpil.courses.book.management.BookRepository;
 import de.rieckpil.courses.book.management.UserService;
 import org.springframework.data.domain.PageRequest;
@@ -21,6 +23,7 @@ public class ReviewService {
   private final ReviewVerifier reviewVerifier;
   private final UserService userService;
   private final BookRepository bookRepository;
+  private final BookIsbnIndex bookIsbnIndex;
   private final ReviewRepository reviewRepository;
   private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -28,17 +31,24 @@ public class ReviewService {
       ReviewVerifier reviewVerifier,
       UserService userService,
       BookRepository bookRepository,
+      BookIsbnIndex bookIsbnIndex,
       ReviewRepository reviewRepository) {
     this.reviewVerifier = reviewVerifier;
     this.userService = userService;
     this.bookRepository = bookRepository;
+    this.bookIsbnIndex = bookIsbnIndex;
     this.reviewRepository = reviewRepository;
   }
 
   public Long createBookReview(
       String isbn, BookReviewRequest bookReviewRequest, String userName, String email) {
 
-    Book book = bookRepository.findByIsbn(isbn);
+    // a known id only needs a reference for the review, not the book itself
+    OptionalLong bookId = bookIsbnIndex.findBookId(isbn);
+    Book book =
+        bookId.isPresent()
+            ? bookRepository.getReferenceById(bookId.getAsLong())
+            : bookRepository.findByIsbn(isbn);
 
     if (book == null) {
       throw new IllegalArgumentException("Book not found");
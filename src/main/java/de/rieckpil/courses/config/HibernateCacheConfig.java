@@ -0,0 +1,66 @@
+package de.rieckpil.courses.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateCacheConfig {
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      @Value("${caches.books.max-size:100000}") long booksMaxSize,
+      @Value("${caches.books.time-to-live:PT1H}") Duration booksTimeToLive,
+      @Value("${caches.users.max-size:10000}") long usersMaxSize,
+      @Value("${caches.users.time-to-live:PT30M}") Duration usersTimeToLive) {
+
+    // a dedicated cache manager per application context, as the caching provider shares them
+    // by URI
+    CacheManager cacheManager =
+        Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(
+                URI.create("urn:hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+
+    cacheManager.createCache("books", cacheConfiguration(booksMaxSize, booksTimeToLive));
+    cacheManager.createCache(
+        "books-natural-ids", cacheConfiguration(booksMaxSize, booksTimeToLive));
+    cacheManager.createCache("users", cacheConfiguration(usersMaxSize, usersTimeToLive));
+    cacheManager.createCache(
+        RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+        cacheConfiguration(usersMaxSize, usersTimeToLive));
+    // update timestamps must outlive every cached query result, so they never expire
+    cacheManager.createCache(
+        RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+        new CaffeineConfiguration<>().setStatisticsEnabled(true));
+
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(
+      CacheManager hibernateCacheManager) {
+    return hibernateProperties ->
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+  }
+
+  private CaffeineConfiguration<Object, Object> cacheConfiguration(
+      long maxSize, Duration timeToLive) {
+    return new CaffeineConfiguration<>()
+        .setMaximumSize(OptionalLong.of(maxSize))
+        .setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()))
+        .setStatisticsEnabled(true);
+  }
+}
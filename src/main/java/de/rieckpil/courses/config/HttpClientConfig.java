@@ -0,0 +1,100 @@
+package de.rieckpil.courses.config;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+
+import javax.net.ssl.SSLSocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HttpClientConfig {
+
+  // pooled keep-alive connections for the blocking OpenLibrary client, so consecutive ISBNs reuse
+  // the TCP and TLS session instead of paying a handshake per call
+  @Bean(destroyMethod = "close")
+  public PoolingHttpClientConnectionManager openLibraryConnectionManager(
+      @Value("${clients.open-library.rest-template.connection-pool.max-connections:50}")
+          int maxConnections,
+      @Value("${clients.open-library.rest-template.connection-pool.max-life-time:PT5M}")
+          Duration maxLifeTime,
+      @Value("${clients.open-library.rest-template.connection-pool.validate-after-inactivity:PT2S}")
+          Duration validateAfterInactivity,
+      MeterRegistry meterRegistry) {
+
+    // together with http.client.requests this shows how often a connection is reused
+    Counter createdConnections =
+        meterRegistry.counter("openlibrary.http.connections.created", "client", "resttemplate");
+
+    PoolingHttpClientConnectionManager connectionManager =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            // all requests go to the same host, so the per-route limit is the effective one
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .setConnectionFactory(countingConnectionFactory(createdConnections))
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setTimeToLive(TimeValue.of(maxLifeTime))
+                    .setValidateAfterInactivity(TimeValue.of(validateAfterInactivity))
+                    .build())
+            .build();
+
+    // httpcomponents.httpclient.pool.* gauges for leased, available and pending connections
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "openlibrary")
+        .bindTo(meterRegistry);
+
+    return connectionManager;
+  }
+
+  @Bean(destroyMethod = "close")
+  public CloseableHttpClient openLibraryHttpClient(
+      PoolingHttpClientConnectionManager openLibraryConnectionManager,
+      @Value("${clients.open-library.rest-template.connection-pool.keep-alive:PT20S}")
+          Duration keepAlive,
+      @Value("${clients.open-library.rest-template.connection-pool.max-idle-time:PT20S}")
+          Duration maxIdleTime) {
+
+    return HttpClients.custom()
+        .setConnectionManager(openLibraryConnectionManager)
+        // applies when the server doesn't announce its own keep-alive timeout
+        .setDefaultRequestConfig(
+            RequestConfig.custom().setConnectionKeepAlive(TimeValue.of(keepAlive)).build())
+        .evictExpiredConnections()
+        .evictIdleConnections(TimeValue.of(maxIdleTime))
+        .build();
+  }
+
+  private static HttpConnectionFactory<ManagedHttpClientConnection> countingConnectionFactory(
+      Counter createdConnections) {
+    return new HttpConnectionFactory<>() {
+      @Override
+      public ManagedHttpClientConnection createConnection(Socket socket) throws IOException {
+        createdConnections.increment();
+        return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+      }
+
+      @Override
+      public ManagedHttpClientConnection createConnection(SSLSocket sslSocket, Socket socket)
+          throws IOException {
+        createdConnections.increment();
+        return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(sslSocket, socket);
+      }
+    };
+  }
+}
@@ -0,0 +1,11 @@
+package de.rieckpil.courses.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// the metadata refresher is the only scheduled job, tests keep it disabled
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "books.refresh.enabled", havingValue = "true")
+public class SchedulingConfig {}
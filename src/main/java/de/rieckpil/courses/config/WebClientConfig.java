@@ -1,5 +1,7 @@
 package de.rieckpil.courses.config;
 
+import java.time.Duration;
+
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
@@ -8,18 +10,55 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.HttpResources;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class WebClientConfig {
 
+  // a dedicated pool, so OpenLibrary can't starve other WebClients of connections and its pool
+  // metrics are tagged with its own name
+  @Bean(destroyMethod = "dispose")
+  public ConnectionProvider openLibraryConnectionProvider(
+      @Value("${clients.open-library.connection-pool.max-connections:50}") int maxConnections,
+      @Value("${clients.open-library.connection-pool.pending-acquire-max-count:200}")
+          int pendingAcquireMaxCount,
+      @Value("${clients.open-library.connection-pool.pending-acquire-timeout:PT5S}")
+          Duration pendingAcquireTimeout,
+      @Value("${clients.open-library.connection-pool.max-idle-time:PT20S}") Duration maxIdleTime,
+      @Value("${clients.open-library.connection-pool.max-life-time:PT5M}") Duration maxLifeTime,
+      @Value("${clients.open-library.connection-pool.eviction-interval:PT30S}")
+          Duration evictionInterval) {
+
+    // idle connections are closed before OpenLibrary's load balancer drops them silently, and
+    // Reactor Netty publishes pool metrics such as reactor.netty.connection.provider.pending
+    // .connections.time (acquire latency) to the global Micrometer registry, which Spring Boot's
+    // registry is part of
+    return ConnectionProvider.builder("openlibrary")
+        .maxConnections(maxConnections)
+        .pendingAcquireMaxCount(pendingAcquireMaxCount)
+        .pendingAcquireTimeout(pendingAcquireTimeout)
+        .maxIdleTime(maxIdleTime)
+        .maxLifeTime(maxLifeTime)
+        .evictInBackground(evictionInterval)
+        .metrics(true)
+        .build();
+  }
+
   @Bean
   public WebClient openLibraryWebClient(
       @Value("${clients.open-library.base-url}") String openLibraryBaseUrl,
+      @Value("${clients.open-library.native-transport:true}") boolean nativeTransport,
+      @Value("${clients.open-library.http2.enabled:false}") boolean http2Enabled,
+      ConnectionProvider openLibraryConnectionProvider,
       WebClient.Builder webClientBuilder) {
 
     HttpClient httpClient =
-        HttpClient.create()
+        HttpClient.create(openLibraryConnectionProvider)
+            // epoll on Linux when netty-transport-native-epoll is available, NIO otherwise
+            .runOn(HttpResources.get(), nativeTransport)
             .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2_000)
             .doOnConnected(
                 connection ->
@@ -27,6 +66,11 @@ public class WebClientConfig {
                         .addHandlerLast(new ReadTimeoutHandler(2))
                         .addHandlerLast(new WriteTimeoutHandler(2)));
 
+    if (http2Enabled) {
+      // negotiated via ALPN, plain HTTP URLs and servers without HTTP/2 fall back to HTTP/1.1
+      httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+    }
+
     return webClientBuilder
         .baseUrl(openLibraryBaseUrl)
         .clientConnector(new ReactorClientHttpConnector(httpClient))
@@ -9,8 +9,13 @@ import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
 
 @Configuration
 @EnableMethodSecurity(prePostEnabled = true)
@@ -26,10 +31,22 @@ public class WebSecurityConfig {
                     .permitAll()
                     .requestMatchers(HttpMethod.GET, "/api/books/reviews")
                     .permitAll()
+                    .requestMatchers(HttpMethod.GET, "/api/books/export")
+                    .permitAll()
+                    .requestMatchers(HttpMethod.GET, "/api/books/search")
+                    .permitAll()
+                    .requestMatchers(HttpMethod.GET, "/api/books/suggest")
+                    .permitAll()
+                    .requestMatchers(HttpMethod.GET, "/api/books/*/cover")
+                    .permitAll()
+                    .requestMatchers(HttpMethod.POST, "/api/books/lookup")
+                    .permitAll()
                     .requestMatchers("/api/**")
                     .authenticated()
                     .requestMatchers(EndpointRequest.to(HealthEndpoint.class))
                     .permitAll()
+                    .requestMatchers(EndpointRequest.toAnyEndpoint())
+                    .authenticated()
                     .anyRequest()
                     .permitAll())
         .sessionManagement(
@@ -37,6 +54,18 @@ public class WebSecurityConfig {
                 sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .cors(Customizer.withDefaults())
         .csrf(AbstractHttpConfigurer::disable)
+        // covers are served asynchronously, the no-cache headers would be written before the
+        // controller sets its own caching headers
+        .headers(
+            headers ->
+                headers
+                    .cacheControl(HeadersConfigurer.CacheControlConfig::disable)
+                    .addHeaderWriter(
+                        new DelegatingRequestMatcherHeaderWriter(
+                            new NegatedRequestMatcher(
+                                PathPatternRequestMatcher.withDefaults()
+                                    .matcher(HttpMethod.GET, "/api/books/*/cover")),
+                            new CacheControlHeadersWriter())))
         .oauth2ResourceServer(
             oauth2 ->
                 oauth2.jwt(
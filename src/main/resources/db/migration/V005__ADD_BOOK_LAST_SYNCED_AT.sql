@@ -0,0 +1,5 @@
+-- existing books have never been refreshed, they are the first ones to pick up
+ALTER TABLE books ADD COLUMN last_synced_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT TIMESTAMP WITH TIME ZONE 'epoch';
+ALTER TABLE books ALTER COLUMN last_synced_at SET DEFAULT now();
+
+CREATE INDEX books_last_synced_at_idx ON books (last_synced_at, id);
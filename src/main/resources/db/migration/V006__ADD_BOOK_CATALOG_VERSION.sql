@@ -0,0 +1,45 @@
+-- every statement changing what clients see of the catalog draws a new version, so instances
+-- notice changes stored by others; a sequence takes no row lock, concurrent writers of books never
+-- wait for each other's commit to bump it
+CREATE SEQUENCE book_catalog_version_seq;
+
+-- statements that changed no rows, like inserts skipped by ON CONFLICT DO NOTHING, keep the version
+CREATE FUNCTION bump_book_catalog_version() RETURNS TRIGGER AS $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM changed_books) THEN
+    PERFORM nextval('book_catalog_version_seq');
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- transition tables can't be combined with a column list, so a refresh that only touches
+-- last_synced_at is filtered here instead
+CREATE FUNCTION bump_book_catalog_version_on_update() RETURNS TRIGGER AS $$
+BEGIN
+  IF EXISTS (
+    SELECT 1 FROM new_books n JOIN old_books o ON o.id = n.id
+    WHERE (o.title, o.isbn, o.author, o.genre, o.thumbnail_url, o.description, o.publisher, o.pages)
+      IS DISTINCT FROM
+      (n.title, n.isbn, n.author, n.genre, n.thumbnail_url, n.description, n.publisher, n.pages)
+  ) THEN
+    PERFORM nextval('book_catalog_version_seq');
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER books_catalog_version_insert
+AFTER INSERT ON books
+REFERENCING NEW TABLE AS changed_books
+FOR EACH STATEMENT EXECUTE FUNCTION bump_book_catalog_version();
+
+CREATE TRIGGER books_catalog_version_delete
+AFTER DELETE ON books
+REFERENCING OLD TABLE AS changed_books
+FOR EACH STATEMENT EXECUTE FUNCTION bump_book_catalog_version();
+
+CREATE TRIGGER books_catalog_version_update
+AFTER UPDATE ON books
+REFERENCING OLD TABLE AS old_books NEW TABLE AS new_books
+FOR EACH STATEMENT EXECUTE FUNCTION bump_book_catalog_version_on_update();
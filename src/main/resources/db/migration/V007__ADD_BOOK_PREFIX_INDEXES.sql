@@ -0,0 +1,4 @@
+-- prefix lookups of suggestions once the catalog is too large for the in-memory index
+CREATE INDEX books_lower_title_prefix_idx ON books (lower(title) text_pattern_ops);
+CREATE INDEX books_lower_author_prefix_idx ON books (lower(author) text_pattern_ops);
+CREATE INDEX books_isbn_prefix_idx ON books (isbn text_pattern_ops);
@@ -0,0 +1,131 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// INSERT ... ON CONFLICT (isbn) is Postgres syntax, the in-memory database can't run it
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookBatchRepositoryTest {
+
+  @Container
+  static PostgreSQLContainer<?> container =
+      new PostgreSQLContainer<>("postgres:17.2")
+          .withDatabaseName("test")
+          .withUsername("duke")
+          .withPassword("s3cret");
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", container::getJdbcUrl);
+    registry.add("spring.datasource.password", container::getPassword);
+    registry.add("spring.datasource.username", container::getUsername);
+  }
+
+  @Autowired private BookRepository cut;
+
+  @Test
+  void shouldInsertBooksAsBatchAndAssignIds() {
+    List<Book> result =
+        cut.insertAllIfAbsent(List.of(createBook("1234567891234"), createBook("1234567891235")));
+
+    assertNotNull(result.get(0).getId());
+    assertNotNull(result.get(1).getId());
+    assertEquals(
+        Set.of("1234567891234", "1234567891235"),
+        cut.findExistingIsbns(List.of("1234567891234", "1234567891235", "42")));
+  }
+
+  @Test
+  void shouldSkipBooksThatAreAlreadyStored() {
+    cut.saveAndFlush(createBook("1234567891234"));
+
+    List<Book> result =
+        cut.insertAllIfAbsent(
+            List.of(
+                createBook("1234567891234"),
+                createBook("1234567891235"),
+                createBook("1234567891235")));
+
+    assertEquals(1, result.size());
+    assertEquals("1234567891235", result.get(0).getIsbn());
+    assertNotNull(result.get(0).getId());
+    assertFalse(cut.insertIfAbsent(createBook("1234567891235")));
+    assertEquals(2, cut.count());
+  }
+
+  @Test
+  void shouldKeepCatalogVersionWhenNoBookWasWritten() {
+    cut.saveAndFlush(createBook("1234567891234"));
+    long catalogVersion = cut.findCatalogVersion();
+
+    cut.insertAllIfAbsent(List.of(createBook("1234567891234")));
+    cut.markSynced(List.of(cut.findByIsbn("1234567891234").getId()), Instant.now());
+
+    assertEquals(catalogVersion, cut.findCatalogVersion());
+    cut.insertAllIfAbsent(List.of(createBook("1234567891235")));
+    assertTrue(cut.findCatalogVersion() > catalogVersion);
+  }
+
+  @Test
+  void shouldMarkBooksAsSynced() {
+    Book first = cut.saveAndFlush(createBook("1234567891234"));
+    Book second = cut.saveAndFlush(createBook("1234567891235"));
+    Instant syncedAt = Instant.parse("2024-01-01T00:00:00Z");
+
+    cut.markSynced(List.of(first.getId()), syncedAt);
+
+    assertEquals(syncedAt, cut.findOldestSyncedAt().orElseThrow());
+    assertNotEquals(syncedAt, cut.findById(second.getId()).orElseThrow().getLastSyncedAt());
+  }
+
+  @Test
+  void shouldClaimLeastRecentlySyncedStaleBooksOnce() {
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    Book recentlySynced = cut.saveAndFlush(createBook("1234567891234"));
+    Book oldest = cut.saveAndFlush(createBook("1234567891235"));
+    Book older = cut.saveAndFlush(createBook("1234567891236"));
+    cut.markSynced(List.of(recentlySynced.getId()), now);
+    cut.markSynced(List.of(oldest.getId()), now.minus(Duration.ofDays(60)));
+    cut.markSynced(List.of(older.getId()), now.minus(Duration.ofDays(40)));
+
+    Instant staleBefore = now.minus(Duration.ofDays(30));
+    Instant claimedUntil = staleBefore.plus(Duration.ofMinutes(10));
+
+    assertEquals(List.of(oldest.getId()), cut.claimStaleBooks(staleBefore, claimedUntil, 1));
+    assertEquals(List.of(older.getId()), cut.claimStaleBooks(staleBefore, claimedUntil, 1));
+    assertEquals(List.of(), cut.claimStaleBooks(staleBefore, claimedUntil, 1));
+    assertEquals(claimedUntil, cut.findOldestSyncedAt().orElseThrow());
+    // once the claim timed out, the book is claimed again
+    assertEquals(2, cut.claimStaleBooks(claimedUntil.plusSeconds(1), claimedUntil, 10).size());
+  }
+
+  private Book createBook(String isbn) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle("Java " + isbn);
+    book.setAuthor("Duke");
+    book.setDescription("Good book");
+    return book;
+  }
+}
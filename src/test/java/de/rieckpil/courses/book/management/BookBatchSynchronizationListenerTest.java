@@ -0,0 +1,60 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookBatchSynchronizationListenerTest {
+
+  @Mock private BookRepository bookRepository;
+
+  @Mock private OpenLibraryApiClient openLibraryApiClient;
+
+  @Mock private BookIsbnIndex bookIsbnIndex;
+
+  @InjectMocks private BookBatchSynchronizationListener cut;
+
+  @Test
+  void shouldFetchAndStoreOnlyMissingBooksOfTheBatch() {
+    when(bookIsbnIndex.contains("9780321751041")).thenReturn(true);
+    when(bookRepository.findExistingIsbns(Set.of("9780321160768", "9780596004651")))
+        .thenReturn(Set.of("9780321160768"));
+
+    Book book = new Book();
+    book.setIsbn("9780596004651");
+    when(openLibraryApiClient.fetchMetadataForBooks(Set.of("9780596004651")))
+        .thenReturn(List.of(book));
+    when(bookRepository.insertAllIfAbsent(List.of(book))).thenReturn(List.of(book));
+
+    cut.consumeBookUpdates(
+        List.of(
+            new BookSynchronization("42"),
+            new BookSynchronization("9780321751041"),
+            new BookSynchronization("9780321160768"),
+            new BookSynchronization("9780596004651"),
+            new BookSynchronization("9780596004651")));
+
+    verify(openLibraryApiClient).fetchMetadataForBooks(Set.of("9780596004651"));
+    verify(bookRepository).insertAllIfAbsent(List.of(book));
+  }
+
+  @Test
+  void shouldNotCallOpenLibraryWhenAllBooksArePresent() {
+    when(bookRepository.findExistingIsbns(Set.of("9780596004651")))
+        .thenReturn(Set.of("9780596004651"));
+
+    cut.consumeBookUpdates(List.of(new BookSynchronization("9780596004651")));
+
+    verifyNoInteractions(openLibraryApiClient);
+    verify(bookRepository, never()).insertAllIfAbsent(any());
+  }
+}
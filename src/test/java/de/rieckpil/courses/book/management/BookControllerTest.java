@@ -1,9 +1,13 @@
 package de.rieckpil.courses.book.management;
 
+import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import de.rieckpil.courses.config.WebSecurityConfig;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -14,8 +18,13 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -23,6 +32,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 // see
 // https://github.com/spring-projects/spring-boot/wiki/Spring-Boot-2.7-Release-Notes#migrating-from-websecurityconfigureradapter-to-securityfilterchain
 @Import(WebSecurityConfig.class)
+// shares the cached context and thus the mocked service with the test classes in the cache package
+@Isolated
 class BookControllerTest {
 
   @MockBean private BookManagementService bookManagementService;
@@ -90,6 +101,197 @@ class BookControllerTest {
         .andExpect(jsonPath("$[1].title", is("Java 15")));
   }
 
+  @Test
+  void shouldReturnCatalogETagWhenBooksAreRequested() throws Exception {
+    when(bookManagementService.getCatalogETag()).thenReturn("\"abc-1\"");
+
+    this.mockMvc
+        .perform(get("/api/books").header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+        .andExpect(status().is(200))
+        .andExpect(header().string(HttpHeaders.ETAG, "\"abc-1\""));
+  }
+
+  @Test
+  void shouldReturnNotModifiedWithoutLoadingBooksWhenCatalogETagMatches() throws Exception {
+    when(bookManagementService.getCatalogETag()).thenReturn("\"abc-1\"");
+
+    this.mockMvc
+        .perform(
+            get("/api/books")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"abc-1\""))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    verify(bookManagementService, never()).getAllBooks();
+  }
+
+  @Test
+  void shouldGetSummariesWhenSummaryViewIsRequested() throws Exception {
+    when(bookManagementService.getAllBookSummaries())
+        .thenReturn(List.of(new BookSummary("42", "Java 14", "Mike", "ftp://localhost:42")));
+
+    this.mockMvc
+        .perform(
+            get("/api/books")
+                .param("view", "summary")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+        .andExpect(status().is(200))
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].isbn", is("42")))
+        .andExpect(jsonPath("$[0].description").doesNotExist());
+
+    verify(bookManagementService, never()).getAllBooks();
+  }
+
+  @Test
+  void shouldRejectSummaryViewCombinedWithPaging() throws Exception {
+    this.mockMvc
+        .perform(get("/api/books").param("view", "summary").param("limit", "50"))
+        .andExpect(status().isBadRequest());
+    this.mockMvc
+        .perform(get("/api/books").param("view", "summary").param("after", "42"))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(bookManagementService);
+  }
+
+  @Test
+  void shouldSearchBooksWithoutAuthentication() throws Exception {
+    when(bookManagementService.searchBooks("java", 0, 20))
+        .thenReturn(
+            List.of(
+                createBook(
+                    1L,
+                    "42",
+                    "Java 14",
+                    "Mike",
+                    "Good book",
+                    "Software Engineering",
+                    200L,
+                    "Oracle",
+                    "ftp://localhost:42")));
+
+    this.mockMvc
+        .perform(
+            get("/api/books/search")
+                .param("q", "java")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+        .andExpect(status().is(200))
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].isbn", is("42")));
+  }
+
+  @Test
+  void shouldSuggestBooksWithoutAuthentication() throws Exception {
+    when(bookManagementService.suggestBooks("jav", 10))
+        .thenReturn(List.of(new BookSummary("42", "Java 14", "Mike", "ftp://localhost:42")));
+
+    this.mockMvc
+        .perform(
+            get("/api/books/suggest")
+                .param("prefix", "jav")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+        .andExpect(status().is(200))
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].title", is("Java 14")));
+  }
+
+  @Test
+  void shouldLookupBooksByIsbnsWithoutAuthentication() throws Exception {
+    when(bookManagementService.lookupBooks(List.of("42", "84")))
+        .thenReturn(
+            List.of(
+                createBook(
+                    1L,
+                    "42",
+                    "Java 14",
+                    "Mike",
+                    "Good book",
+                    "Software Engineering",
+                    200L,
+                    "Oracle",
+                    "ftp://localhost:42")));
+
+    this.mockMvc
+        .perform(
+            post("/api/books/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[\"42\", \"84\"]"))
+        .andExpect(status().is(200))
+        .andExpect(jsonPath("$.size()", is(1)))
+        .andExpect(jsonPath("$[0].isbn", is("42")));
+  }
+
+  @Test
+  void shouldRejectLookupWhenTooManyIsbnsAreRequested() throws Exception {
+    String isbns =
+        IntStream.rangeClosed(0, BookManagementService.MAX_LOOKUP_SIZE)
+            .mapToObj(i -> "\"" + i + "\"")
+            .collect(Collectors.joining(",", "[", "]"));
+
+    this.mockMvc
+        .perform(post("/api/books/lookup").contentType(MediaType.APPLICATION_JSON).content(isbns))
+        .andExpect(status().isBadRequest());
+
+    verify(bookManagementService, never()).lookupBooks(any());
+  }
+
+  @Test
+  void shouldGetPageWithNextCursorWhenLimitIsRequested() throws Exception {
+
+    Book bookOne =
+        createBook(
+            1L,
+            "42",
+            "Java 14",
+            "Mike",
+            "Good book",
+            "Software Engineering",
+            200L,
+            "Oracle",
+            "ftp://localhost:42");
+
+    when(bookManagementService.getBooksAfter(null, 1))
+        .thenReturn(new BookPage(List.of(bookOne), 1L));
+
+    this.mockMvc
+        .perform(
+            get("/api/books")
+                .param("limit", "1")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+        .andExpect(status().is(200))
+        .andExpect(jsonPath("$.books.size()", is(1)))
+        .andExpect(jsonPath("$.books[0].isbn", is("42")))
+        .andExpect(jsonPath("$.nextCursor", is(1)));
+  }
+
+  @Test
+  void shouldPageWithDefaultLimitWhenOnlyCursorIsGiven() throws Exception {
+    when(bookManagementService.getBooksAfter(1L, BookManagementService.DEFAULT_PAGE_SIZE))
+        .thenReturn(new BookPage(List.of(), null));
+
+    this.mockMvc
+        .perform(
+            get("/api/books")
+                .param("after", "1")
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON))
+        .andExpect(status().is(200))
+        .andExpect(jsonPath("$.books.size()", is(0)));
+
+    verify(bookManagementService, never()).getAllBooks();
+  }
+
+  @Test
+  void shouldExportBooksAsNdjson() throws Exception {
+    this.mockMvc
+        .perform(get("/api/books/export").header(HttpHeaders.ACCEPT, MediaType.APPLICATION_NDJSON))
+        .andExpect(status().is(200))
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+
+    verify(bookManagementService).exportBooks(any(OutputStream.class));
+  }
+
   private Book createBook(
       Long id,
       String isbn,
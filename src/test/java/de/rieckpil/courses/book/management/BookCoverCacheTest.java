@@ -0,0 +1,165 @@
+package de.rieckpil.courses.book.management;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookCoverCacheTest {
+
+  private static final String ISBN = "9780596004651";
+
+  @Mock private BookRepository bookRepository;
+
+  @TempDir private Path cacheDirectory;
+
+  private MockWebServer mockWebServer;
+  private BookCoverCache cut;
+
+  @BeforeEach
+  void setup() throws IOException {
+    this.mockWebServer = new MockWebServer();
+    this.mockWebServer.start();
+
+    this.cut =
+        new BookCoverCache(
+            bookRepository,
+            WebClient.create(),
+            new OpenLibraryConcurrencyLimiter(
+                10, 1, 100, 200, 0.9, Duration.ofSeconds(5), new SimpleMeterRegistry()),
+            new OpenLibraryCircuitBreaker(
+                5, Duration.ofSeconds(30), event -> {}, new SimpleMeterRegistry()),
+            URI.create(mockWebServer.url("/").toString()),
+            cacheDirectory,
+            Duration.ofDays(1),
+            DataSize.ofMegabytes(10),
+            List.of(64, 128),
+            new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    this.mockWebServer.shutdown();
+  }
+
+  @Test
+  void shouldFetchCoverOnceAndServeItFromDisk() throws IOException {
+    byte[] cover = createCover(180, 270);
+    storedBookWithCover();
+    this.mockWebServer.enqueue(new MockResponse().setBody(new Buffer().write(cover)));
+
+    Path first = cut.getCover(ISBN, null).join();
+    Path second = cut.getCover(ISBN, null).join();
+
+    assertEquals(first, second);
+    assertArrayEquals(cover, Files.readAllBytes(first));
+    assertEquals(cacheDirectory.resolve("51"), first.getParent());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldResizeCoverToNextConfiguredWidth() throws IOException {
+    storedBookWithCover();
+    this.mockWebServer.enqueue(
+        new MockResponse().setBody(new Buffer().write(createCover(180, 270))));
+
+    BufferedImage variant = ImageIO.read(cut.getCover(ISBN, 100).join().toFile());
+    BufferedImage original = ImageIO.read(cut.getCover(ISBN, 500).join().toFile());
+
+    assertEquals(128, variant.getWidth());
+    assertEquals(192, variant.getHeight());
+    assertEquals(180, original.getWidth());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldFailForUnknownBooksAndCoversMissingAtTheSource() {
+    storedBookWithCover();
+    this.mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+    assertThrows(BookCoverNotFoundException.class, () -> cut.getCover("42", null));
+    CompletionException exception =
+        assertThrows(CompletionException.class, () -> cut.getCover(ISBN, null).join());
+    assertInstanceOf(BookCoverNotFoundException.class, exception.getCause());
+  }
+
+  @Test
+  void shouldNotFetchCoversOfOtherHosts() {
+    storedBookWithCover("http://169.254.169.254/latest/meta-data/cover.png");
+
+    assertThrows(BookCoverNotFoundException.class, () -> cut.getCover(ISBN, null));
+    assertEquals(0, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldStreamCoversLargerThanTheCodecBuffer() throws IOException {
+    byte[] cover = new byte[1024 * 1024];
+    new Random(42).nextBytes(cover);
+    storedBookWithCover();
+    this.mockWebServer.enqueue(new MockResponse().setBody(new Buffer().write(cover)));
+
+    assertArrayEquals(cover, Files.readAllBytes(cut.getCover(ISBN, null).join()));
+  }
+
+  @Test
+  void shouldReplaceCoversOfAFormerThumbnailUrl() throws IOException {
+    storedBookWithCover();
+    this.mockWebServer.enqueue(
+        new MockResponse().setBody(new Buffer().write(createCover(180, 270))));
+    Path former = cut.getCover(ISBN, 64).join();
+
+    storedBookWithCover(mockWebServer.url("/b/id/8231856-S.png").toString());
+    this.mockWebServer.enqueue(
+        new MockResponse().setBody(new Buffer().write(createCover(180, 270))));
+    Path current = cut.getCover(ISBN, null).join();
+
+    assertNotEquals(former, current);
+    try (Stream<Path> files = Files.list(current.getParent())) {
+      assertEquals(List.of(current), files.toList());
+    }
+  }
+
+  private void storedBookWithCover() {
+    storedBookWithCover(mockWebServer.url("/b/id/388761-S.png").toString());
+  }
+
+  private void storedBookWithCover(String thumbnailUrl) {
+    Book book = new Book();
+    book.setIsbn(ISBN);
+    book.setThumbnailUrl(thumbnailUrl);
+    when(bookRepository.findByIsbn(ISBN)).thenReturn(book);
+  }
+
+  private static byte[] createCover(int width, int height) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", content);
+    return content.toByteArray();
+  }
+}
@@ -0,0 +1,84 @@
+package de.rieckpil.courses.book.management;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import de.rieckpil.courses.config.WebSecurityConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BookCoverController.class)
+@Import(WebSecurityConfig.class)
+class BookCoverControllerTest {
+
+  @MockBean private BookCoverCache bookCoverCache;
+
+  @Autowired private MockMvc mockMvc;
+
+  @TempDir private Path directory;
+
+  @Test
+  void shouldServeCachedCoverWithLongCacheHeaders() throws Exception {
+    Path cover = Files.write(directory.resolve("9780596004651-1a2b-128.jpg"), new byte[] {1, 2, 3});
+    when(bookCoverCache.getCover("9780596004651", 100))
+        .thenReturn(CompletableFuture.completedFuture(cover));
+
+    MvcResult result =
+        this.mockMvc
+            .perform(get("/api/books/9780596004651/cover").param("width", "100"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    this.mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+        .andExpect(content().bytes(new byte[] {1, 2, 3}))
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=2592000, public"))
+        .andExpect(header().string(HttpHeaders.ETAG, "\"9780596004651-1a2b-128.jpg\""));
+
+    MvcResult revalidation =
+        this.mockMvc
+            .perform(
+                get("/api/books/9780596004651/cover")
+                    .param("width", "100")
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"9780596004651-1a2b-128.jpg\""))
+            .andReturn();
+
+    this.mockMvc.perform(asyncDispatch(revalidation)).andExpect(status().isNotModified());
+  }
+
+  @Test
+  void shouldReturnNotFoundForBooksWithoutCover() throws Exception {
+    when(bookCoverCache.getCover("42", null))
+        .thenThrow(new BookCoverNotFoundException("No cover available for isbn 42"));
+
+    this.mockMvc.perform(get("/api/books/42/cover")).andExpect(status().isNotFound());
+  }
+
+  @Test
+  void shouldReturnNotFoundForCoversMissingAtTheSource() throws Exception {
+    when(bookCoverCache.getCover("9780596004651", null))
+        .thenReturn(
+            CompletableFuture.failedFuture(
+                new BookCoverNotFoundException("No cover available for isbn 9780596004651")));
+
+    MvcResult result = this.mockMvc.perform(get("/api/books/9780596004651/cover")).andReturn();
+
+    this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound());
+  }
+}
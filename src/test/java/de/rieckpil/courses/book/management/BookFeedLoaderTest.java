@@ -0,0 +1,146 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookFeedLoaderTest {
+
+  @Container
+  static PostgreSQLContainer<?> container =
+      new PostgreSQLContainer<>("postgres:17.2")
+          .withDatabaseName("test")
+          .withUsername("duke")
+          .withPassword("s3cret");
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", container::getJdbcUrl);
+    registry.add("spring.datasource.password", container::getPassword);
+    registry.add("spring.datasource.username", container::getUsername);
+  }
+
+  @Autowired private BookRepository bookRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private PlatformTransactionManager transactionManager;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @TempDir private Path directory;
+
+  @Test
+  void shouldInsertNewBooksAndUpdateExistingOnesByIsbn() throws IOException {
+    Book stored = new Book();
+    stored.setIsbn("9780321751041");
+    stored.setTitle("Effective Java, 2nd Edition");
+    bookRepository.saveAndFlush(stored);
+
+    Path feed =
+        Files.writeString(
+            directory.resolve("feed.csv"),
+            """
+            title,isbn,author,genre,thumbnail_url,description,publisher,pages
+            Effective Java,9780321751041,Joshua Bloch,Java,,"Best practices, updated",Addison-Wesley,412
+            Refactoring,9780321160768,Martin Fowler,,,,Addison-Wesley,
+            Refactoring,9780321160768,Martin Fowler,,,,Addison-Wesley,
+            Invalid,42,Duke,,,,,
+            """);
+
+    long catalogVersion = bookRepository.findCatalogVersion();
+    BookFeedLoader.LoadResult result = createLoader().load(feed);
+
+    assertEquals(new BookFeedLoader.LoadResult(4, 2), result);
+    assertEquals(2, bookRepository.count());
+    Book updated = bookRepository.findByIsbn("9780321751041");
+    assertEquals("Effective Java", updated.getTitle());
+    assertEquals("Best practices, updated", updated.getDescription());
+    assertEquals(412, updated.getPages());
+    // other instances notice the merge through the shared catalog version
+    assertTrue(bookRepository.findCatalogVersion() > catalogVersion);
+
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  void shouldKeepFeedMetadataWhenRefreshingItFromOpenLibrary() throws IOException {
+    Path feed =
+        Files.writeString(
+            directory.resolve("feed.csv"),
+            """
+            title,isbn,author,genre,thumbnail_url,description,publisher,pages
+            Effective Java,9780321751041,Joshua Bloch,Java,,Best practices,Addison-Wesley,412
+            """);
+
+    createLoader().load(feed);
+    assertTrue(bookRepository.findByIsbn("9780321751041").getLastSyncedAt().isAfter(Instant.EPOCH));
+
+    OpenLibraryApiClient openLibraryApiClient = mock(OpenLibraryApiClient.class);
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(
+            Mono.just(
+                List.of(
+                    OpenLibraryBookDecoder.decode(
+                        "9780321751041", "{\"title\": null}".getBytes()))));
+    new BookMetadataRefresher(
+            bookRepository,
+            openLibraryApiClient,
+            new TransactionTemplate(transactionManager),
+            Duration.ZERO,
+            Duration.ofMinutes(10),
+            10,
+            10,
+            1,
+            new SimpleMeterRegistry())
+        .refreshStaleBooks();
+
+    entityManagerFactory.getCache().evictAll();
+    Book refreshed = bookRepository.findByIsbn("9780321751041");
+    assertEquals("Effective Java", refreshed.getTitle());
+    assertEquals("Joshua Bloch", refreshed.getAuthor());
+    assertEquals("Best practices", refreshed.getDescription());
+    assertEquals(412, refreshed.getPages());
+
+    bookRepository.deleteAll();
+  }
+
+  private BookFeedLoader createLoader() {
+    return new BookFeedLoader(
+        jdbcTemplate,
+        entityManagerFactory,
+        event -> {},
+        directory.resolve("unused.csv"),
+        // splits the duplicate rows of a feed into separately committed ranges
+        2,
+        new SimpleMeterRegistry());
+  }
+}
@@ -0,0 +1,140 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookImporterTest {
+
+  @Mock private BookRepository bookRepository;
+
+  @Mock private OpenLibraryApiClient openLibraryApiClient;
+
+  @Mock private BookIsbnIndex bookIsbnIndex;
+
+  @TempDir private Path directory;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private BookImporter cut;
+
+  @BeforeEach
+  void setup() {
+    cut =
+        new BookImporter(
+            bookRepository,
+            openLibraryApiClient,
+            bookIsbnIndex,
+            directory.resolve("unused.csv"),
+            2,
+            1,
+            2,
+            Duration.ofMillis(10),
+            meterRegistry);
+  }
+
+  @Test
+  void shouldImportOnlyValidAndMissingIsbnsInChunks() throws IOException {
+    Path file =
+        Files.writeString(
+            directory.resolve("isbns.csv"),
+            """
+            isbn,title
+            978-0321751041,Effective Java
+            9780321751041,Effective Java
+
+            42,Invalid
+            9780321160768,Refactoring
+            9780596004651,Head first Java
+            """);
+
+    when(bookRepository.findExistingIsbns(Set.of("9780321751041", "9780321160768")))
+        .thenReturn(Set.of("9780321160768"));
+    when(bookRepository.findExistingIsbns(Set.of("9780596004651"))).thenReturn(Set.of());
+    Book effectiveJava = book("9780321751041");
+    Book headFirstJava = book("9780596004651");
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(Mono.just(List.of(effectiveJava)));
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780596004651")))
+        .thenReturn(Mono.just(List.of(headFirstJava)));
+    when(bookRepository.insertAllIfAbsent(any())).then(invocation -> invocation.getArgument(0));
+
+    BookImporter.ImportResult result = cut.importBooks(file);
+
+    assertEquals(new BookImporter.ImportResult(2, 2, 1, 0), result);
+    verify(bookRepository).insertAllIfAbsent(List.of(effectiveJava));
+    verify(bookRepository).insertAllIfAbsent(List.of(headFirstJava));
+    assertEquals(2, meterRegistry.counter("books.import.isbns", "outcome", "imported").count());
+  }
+
+  @Test
+  void shouldCountFailedFetchesAndContinue() throws IOException {
+    Path file = Files.writeString(directory.resolve("isbns.txt"), "9780321751041\n9780321160768\n");
+
+    when(bookRepository.findExistingIsbns(any())).thenReturn(Set.of());
+    Book refactoring = book("9780321160768");
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(Mono.error(new IllegalStateException("OpenLibrary failed")));
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321160768")))
+        .thenReturn(Mono.just(List.of(refactoring)));
+    when(bookRepository.insertAllIfAbsent(List.of(refactoring))).thenReturn(List.of(refactoring));
+
+    BookImporter.ImportResult result = cut.importBooks(file);
+
+    assertEquals(new BookImporter.ImportResult(1, 0, 0, 1), result);
+  }
+
+  @Test
+  void shouldWaitForOpenCircuitInsteadOfSkippingBatches() throws IOException {
+    Path file = Files.writeString(directory.resolve("isbns.txt"), "9780321751041\n");
+
+    when(bookRepository.findExistingIsbns(any())).thenReturn(Set.of());
+    Book effectiveJava = book("9780321751041");
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(Mono.error(new OpenLibraryUnavailableException("circuit open")))
+        .thenReturn(Mono.error(new OpenLibraryUnavailableException("circuit open")))
+        .thenReturn(Mono.just(List.of(effectiveJava)));
+    when(bookRepository.insertAllIfAbsent(List.of(effectiveJava)))
+        .thenReturn(List.of(effectiveJava));
+
+    BookImporter.ImportResult result = cut.importBooks(file);
+
+    assertEquals(new BookImporter.ImportResult(1, 0, 0, 0), result);
+    verify(openLibraryApiClient, times(3)).fetchMetadataForBooksAsync(List.of("9780321751041"));
+  }
+
+  @Test
+  void shouldSkipIsbnsOfTheIndexWithoutQueryingTheDatabase() throws IOException {
+    Path file = Files.writeString(directory.resolve("isbns.txt"), "9780321751041\n");
+    when(bookIsbnIndex.contains("9780321751041")).thenReturn(true);
+
+    BookImporter.ImportResult result = cut.importBooks(file);
+
+    assertEquals(new BookImporter.ImportResult(0, 1, 0, 0), result);
+    verifyNoInteractions(openLibraryApiClient);
+    verify(bookRepository, never()).findExistingIsbns(any());
+  }
+
+  private static Book book(String isbn) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    return book;
+  }
+}
@@ -0,0 +1,51 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookIsbnIndexTest {
+
+  @Mock private BookRepository bookRepository;
+
+  @InjectMocks private BookIsbnIndex cut;
+
+  @BeforeEach
+  void setup() {
+    when(bookRepository.count()).thenReturn(2L);
+    when(bookRepository.streamAllIsbns())
+        .thenReturn(Stream.of(new BookIsbn(1L, "9780596004651"), new BookIsbn(2L, "not-an-isbn")));
+    cut.loadIndex();
+  }
+
+  @Test
+  void shouldResolveLoadedIsbnsOnly() {
+    assertEquals(OptionalLong.of(1L), cut.findBookId("9780596004651"));
+    assertEquals(OptionalLong.empty(), cut.findBookId("not-an-isbn"));
+    assertEquals(OptionalLong.empty(), cut.findBookId("9780321349606"));
+  }
+
+  @Test
+  void shouldFollowCatalogChanges() {
+    Book book = new Book();
+    book.setId(3L);
+    book.setIsbn("9780321349606");
+
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(book, false));
+    assertEquals(OptionalLong.of(3L), cut.findBookId("9780321349606"));
+
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(book, true));
+    assertFalse(cut.contains("9780321349606"));
+  }
+}
@@ -0,0 +1,141 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookManagementServiceTest {
+
+  @Mock private BookRepository bookRepository;
+
+  @Mock private EntityManager entityManager;
+
+  @Mock private BookSuggestionIndex bookSuggestionIndex;
+
+  private MeterRegistry meterRegistry;
+
+  private BookManagementService cut;
+
+  @BeforeEach
+  void setup() {
+    this.meterRegistry = new SimpleMeterRegistry();
+    this.cut =
+        new BookManagementService(
+            bookRepository,
+            entityManager,
+            new ObjectMapper(),
+            bookSuggestionIndex,
+            Duration.ofMinutes(1),
+            meterRegistry);
+  }
+
+  @Test
+  void shouldServeCatalogFromSnapshotWhenNothingChanged() {
+    when(bookRepository.findAll()).thenReturn(List.of(new Book()));
+
+    cut.getAllBooks();
+    List<Book> result = cut.getAllBooks();
+
+    assertEquals(1, result.size());
+    verify(bookRepository, times(1)).findAll();
+    assertEquals(1, meterRegistry.counter("books.catalog.cache", "result", "hit").count());
+    assertEquals(1, meterRegistry.counter("books.catalog.cache", "result", "miss").count());
+  }
+
+  @Test
+  void shouldRebuildCatalogSnapshotWhenBookWasStored() {
+    when(bookRepository.findAll()).thenReturn(List.of()).thenReturn(List.of(new Book()));
+
+    cut.getAllBooks();
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(new Book(), false));
+    List<Book> result = cut.getAllBooks();
+
+    assertEquals(1, result.size());
+    verify(bookRepository, times(2)).findAll();
+    assertEquals(2, meterRegistry.counter("books.catalog.cache.rebuilds").count());
+  }
+
+  @Test
+  void shouldRebuildCatalogSnapshotWhenAnotherInstanceChangedTheCatalog() {
+    BookManagementService cut =
+        new BookManagementService(
+            bookRepository,
+            entityManager,
+            new ObjectMapper(),
+            bookSuggestionIndex,
+            Duration.ZERO,
+            meterRegistry);
+    when(bookRepository.findCatalogVersion()).thenReturn(1L, 1L, 2L);
+    when(bookRepository.findAll()).thenReturn(List.of()).thenReturn(List.of(new Book()));
+
+    cut.getAllBooks();
+    String eTag = cut.getCatalogETag();
+    List<Book> result = cut.getAllBooks();
+
+    assertEquals(1, result.size());
+    assertNotEquals(eTag, cut.getCatalogETag());
+    verify(bookRepository, times(2)).findAll();
+  }
+
+  @Test
+  void shouldRebuildCatalogSnapshotOnceMoreWhenSharedVersionSettled() {
+    BookManagementService cut =
+        new BookManagementService(
+            bookRepository,
+            entityManager,
+            new ObjectMapper(),
+            bookSuggestionIndex,
+            Duration.ZERO,
+            meterRegistry);
+    when(bookRepository.findCatalogVersion()).thenReturn(1L);
+    when(bookRepository.findAll()).thenReturn(List.of()).thenReturn(List.of(new Book()));
+
+    cut.getAllBooks();
+    List<Book> settled = cut.getAllBooks();
+    cut.getAllBooks();
+
+    // the write behind version 1 might have committed only after the first snapshot was built
+    assertEquals(1, settled.size());
+    verify(bookRepository, times(2)).findAll();
+  }
+
+  @Test
+  void shouldDeriveCatalogETagFromSharedVersionOnly() {
+    BookManagementService other =
+        new BookManagementService(
+            bookRepository,
+            entityManager,
+            new ObjectMapper(),
+            bookSuggestionIndex,
+            Duration.ZERO,
+            meterRegistry);
+    cut =
+        new BookManagementService(
+            bookRepository,
+            entityManager,
+            new ObjectMapper(),
+            bookSuggestionIndex,
+            Duration.ZERO,
+            meterRegistry);
+    when(bookRepository.findCatalogVersion()).thenReturn(7L);
+
+    assertEquals("\"7-pending\"", cut.getCatalogETag());
+    assertEquals("\"7\"", cut.getCatalogETag());
+    other.getCatalogETag();
+    assertEquals(cut.getCatalogETag(), other.getCatalogETag());
+  }
+}
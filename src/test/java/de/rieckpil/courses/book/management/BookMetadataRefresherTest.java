@@ -0,0 +1,170 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookMetadataRefresherTest {
+
+  private static final Instant LAST_SYNCED_AT = Instant.parse("2024-01-01T00:00:00Z");
+
+  @Mock private BookRepository bookRepository;
+
+  @Mock private OpenLibraryApiClient openLibraryApiClient;
+
+  @Mock private PlatformTransactionManager transactionManager;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private BookMetadataRefresher cut;
+
+  @BeforeEach
+  void setup() {
+    cut =
+        new BookMetadataRefresher(
+            bookRepository,
+            openLibraryApiClient,
+            new TransactionTemplate(transactionManager),
+            Duration.ofDays(30),
+            Duration.ofMinutes(10),
+            3,
+            1,
+            2,
+            meterRegistry);
+  }
+
+  @Test
+  void shouldApplyChangedMetadataAndMarkBooksAsSynced() {
+    Book changed = storedBook(1L, "9780321751041");
+    Book unchanged = storedBook(2L, "9780321160768");
+    Book unknown = storedBook(3L, "9780596004651");
+    List<Book> staleBooks = List.of(changed, unchanged, unknown);
+
+    when(bookRepository.findOldestSyncedAt()).thenReturn(Optional.of(LAST_SYNCED_AT));
+    when(bookRepository.claimStaleBooks(any(), any(), eq(3))).thenReturn(List.of(1L, 2L, 3L));
+    when(bookRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(staleBooks);
+    Book fetched = storedBook(null, "9780321751041");
+    fetched.setTitle("Effective Java, 3rd Edition");
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(Mono.just(List.of(fetched)));
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321160768")))
+        .thenReturn(Mono.just(List.of(storedBook(null, "9780321160768"))));
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780596004651")))
+        .thenReturn(Mono.just(List.of()));
+
+    cut.refreshStaleBooks();
+
+    assertEquals("Effective Java, 3rd Edition", changed.getTitle());
+    assertTrue(changed.getLastSyncedAt().isAfter(LAST_SYNCED_AT));
+    // untouched entities stay clean, they must not publish catalog events
+    assertEquals(LAST_SYNCED_AT, unchanged.getLastSyncedAt());
+    assertEquals(LAST_SYNCED_AT, unknown.getLastSyncedAt());
+    verify(bookRepository).markSynced(eq(List.of(2L, 3L)), any());
+    assertEquals(1, outcome("updated"));
+    assertEquals(1, outcome("unchanged"));
+    assertEquals(1, outcome("unknown"));
+    assertTrue(meterRegistry.get("books.refresh.lag").gauge().value() > 0);
+  }
+
+  @Test
+  void shouldLeaveBooksOfFailedBatchesClaimedUntilTheClaimTimesOut() {
+    Book failed = storedBook(1L, "9780321751041");
+    Book refreshed = storedBook(2L, "9780321160768");
+    Book third = storedBook(3L, "9780596004651");
+    List<Book> staleBooks = List.of(failed, refreshed, third);
+
+    when(bookRepository.claimStaleBooks(any(), any(), eq(3))).thenReturn(List.of(1L, 2L, 3L));
+    when(bookRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(staleBooks);
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(Mono.error(new IllegalStateException("OpenLibrary unavailable")));
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321160768")))
+        .thenReturn(Mono.just(List.of(storedBook(null, "9780321160768"))));
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780596004651")))
+        .thenReturn(Mono.just(List.of(storedBook(null, "9780596004651"))));
+
+    cut.refreshStaleBooks();
+
+    assertEquals(LAST_SYNCED_AT, failed.getLastSyncedAt());
+    assertEquals(1, outcome("failed"));
+    verify(bookRepository).markSynced(eq(List.of(2L, 3L)), any());
+    // claimed until the claim timeout is stale again
+    ArgumentCaptor<Instant> staleBefore = ArgumentCaptor.forClass(Instant.class);
+    ArgumentCaptor<Instant> claimedUntil = ArgumentCaptor.forClass(Instant.class);
+    verify(bookRepository).claimStaleBooks(staleBefore.capture(), claimedUntil.capture(), eq(3));
+    assertEquals(
+        Duration.ofMinutes(10), Duration.between(staleBefore.getValue(), claimedUntil.getValue()));
+  }
+
+  @Test
+  void shouldSkipTickWhenNoStaleBookIsLeftToClaim() {
+    when(bookRepository.claimStaleBooks(any(), any(), eq(3))).thenReturn(List.of());
+
+    cut.refreshStaleBooks();
+
+    verify(bookRepository, never()).findAllById(any());
+    verifyNoInteractions(openLibraryApiClient);
+  }
+
+  @Test
+  void shouldNotOverwriteStoredMetadataWithFieldsOpenLibraryDoesNotKnow() {
+    Book stored = storedBook(1L, "9780321751041");
+    stored.setGenre("Java");
+    stored.setDescription("Best practices");
+    stored.setThumbnailUrl("https://covers.openlibrary.org/b/id/8231856-S.jpg");
+    stored.setPages(412L);
+    List<Book> staleBooks = List.of(stored);
+
+    when(bookRepository.claimStaleBooks(any(), any(), eq(3))).thenReturn(List.of(1L));
+    when(bookRepository.findAllById(List.of(1L))).thenReturn(staleBooks);
+    when(openLibraryApiClient.fetchMetadataForBooksAsync(List.of("9780321751041")))
+        .thenReturn(
+            Mono.just(
+                List.of(
+                    OpenLibraryBookDecoder.decode(
+                        "9780321751041", "{\"title\": null}".getBytes()))));
+
+    cut.refreshStaleBooks();
+
+    assertEquals("Java 9780321751041", stored.getTitle());
+    assertEquals("Duke", stored.getAuthor());
+    assertEquals("Java", stored.getGenre());
+    assertEquals("Best practices", stored.getDescription());
+    assertEquals("https://covers.openlibrary.org/b/id/8231856-S.jpg", stored.getThumbnailUrl());
+    assertEquals(412L, stored.getPages());
+    assertEquals(1, outcome("unchanged"));
+    verify(bookRepository).markSynced(eq(List.of(1L)), any());
+  }
+
+  private double outcome(String outcome) {
+    return meterRegistry.get("books.refresh.books").tag("outcome", outcome).counter().count();
+  }
+
+  private static Book storedBook(Long id, String isbn) {
+    Book book = new Book();
+    book.setId(id);
+    book.setIsbn(isbn);
+    book.setTitle("Java " + isbn);
+    book.setAuthor("Duke");
+    book.setLastSyncedAt(LAST_SYNCED_AT);
+    return book;
+  }
+}
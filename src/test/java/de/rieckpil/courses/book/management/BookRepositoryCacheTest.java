@@ -0,0 +1,93 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.LocalDateTime;
+
+import de.rieckpil.courses.config.HibernateCacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataJpaTest(
+    properties = {
+      "spring.flyway.enabled=false",
+      "spring.jpa.hibernate.ddl-auto=create-drop",
+      "spring.jpa.properties.hibernate.generate_statistics=true",
+      "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+      "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+      "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+      "spring.datasource.url=jdbc:h2:mem:bookcache;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false"
+    })
+@Import(HibernateCacheConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// the second-level cache is only populated once a transaction commits
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookRepositoryCacheTest {
+
+  private static final String ISBN = "9780596004651";
+
+  @Autowired private BookRepository bookRepository;
+
+  @Autowired private UserRepository userRepository;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setup() {
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @AfterEach
+  void cleanUp() {
+    bookRepository.deleteAll();
+    userRepository.deleteAll();
+  }
+
+  @Test
+  void shouldResolveBookByIsbnWithoutQueryingTheDatabaseAgain() {
+    Book book = new Book();
+    book.setIsbn(ISBN);
+    book.setTitle("Head First Java");
+    bookRepository.save(book);
+
+    assertNotNull(bookRepository.findByIsbn(ISBN));
+
+    statistics.clear();
+
+    assertNotNull(bookRepository.findByIsbn(ISBN));
+
+    assertEquals(0, statistics.getPrepareStatementCount());
+    assertEquals(1, statistics.getNaturalIdCacheHitCount());
+    assertEquals(1, statistics.getSecondLevelCacheHitCount());
+  }
+
+  @Test
+  void shouldAnswerRepeatedUserLookupsFromQueryCache() {
+    User user = new User();
+    user.setName("duke");
+    user.setEmail("duke@spring.io");
+    user.setCreatedAt(LocalDateTime.now());
+    userRepository.save(user);
+
+    statistics.clear();
+
+    assertNotNull(userRepository.findByNameAndEmail("duke", "duke@spring.io"));
+    assertNotNull(userRepository.findByNameAndEmail("duke", "duke@spring.io"));
+
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(1, statistics.getQueryCacheHitCount());
+  }
+}
@@ -0,0 +1,70 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookRepositoryNoInMemoryTest {
+
+  @Container
+  static PostgreSQLContainer<?> container =
+      new PostgreSQLContainer<>("postgres:17.2")
+          .withDatabaseName("test")
+          .withUsername("duke")
+          .withPassword("s3cret");
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", container::getJdbcUrl);
+    registry.add("spring.datasource.password", container::getPassword);
+    registry.add("spring.datasource.username", container::getUsername);
+  }
+
+  @Autowired private BookRepository cut;
+
+  @Test
+  void shouldRankTitleMatchesBeforeGenreMatches() {
+    cut.saveAndFlush(createBook("1234567891234", "Effective Testing", "Software Engineering"));
+    cut.saveAndFlush(createBook("1234567891235", "Clean Code", "Testing"));
+    cut.saveAndFlush(createBook("1234567891236", "Java Concurrency", "Software Engineering"));
+
+    List<Book> result = cut.search("testing", PageRequest.of(0, 10));
+
+    assertEquals(
+        List.of("1234567891234", "1234567891235"), result.stream().map(Book::getIsbn).toList());
+  }
+
+  @Test
+  void shouldPaginateSearchResults() {
+    cut.saveAndFlush(createBook("1234567891234", "Java 14", "Java"));
+    cut.saveAndFlush(createBook("1234567891235", "Java 15", "Java"));
+
+    List<Book> result = cut.search("java", PageRequest.of(1, 1));
+
+    assertEquals(1, result.size());
+  }
+
+  private Book createBook(String isbn, String title, String genre) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle(title);
+    book.setGenre(genre);
+    book.setAuthor("Duke");
+    book.setPublisher("Duke Press");
+    return book;
+  }
+}
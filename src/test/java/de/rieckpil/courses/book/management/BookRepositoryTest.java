@@ -0,0 +1,105 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(
+    properties = {
+      "spring.flyway.enabled=false",
+      "spring.jpa.hibernate.ddl-auto=create-drop",
+      "spring.datasource.driver-class-name=com.p6spy.engine.spy.P6SpyDriver", // P6Spy
+      "spring.datasource.url=jdbc:p6spy:h2:mem:books;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=false" // P6Spy
+    })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookRepositoryTest {
+
+  @Autowired private BookRepository cut;
+
+  @Test
+  void shouldReturnBooksAfterCursorOrderedById() {
+    List<Book> stored =
+        cut.saveAll(
+            List.of(
+                createBook("1234567891234"),
+                createBook("1234567891235"),
+                createBook("1234567891236")));
+
+    List<Book> result = cut.findByIdGreaterThanOrderByIdAsc(stored.get(0).getId(), Limit.of(1));
+
+    assertEquals(1, result.size());
+    assertEquals("1234567891235", result.get(0).getIsbn());
+  }
+
+  @Test
+  void shouldStreamAllBooksOrderedById() {
+    cut.saveAll(List.of(createBook("1234567891235"), createBook("1234567891234")));
+
+    try (Stream<Book> result = cut.streamAllByOrderByIdAsc()) {
+      assertEquals(List.of("1234567891235", "1234567891234"), result.map(Book::getIsbn).toList());
+    }
+  }
+
+  @Test
+  void shouldReturnSummariesWithoutDescription() {
+    cut.save(createBook("1234567891234"));
+
+    List<BookSummary> result = cut.findSummariesByOrderByIdAsc();
+
+    assertEquals(
+        List.of(new BookSummary("1234567891234", "Java 1234567891234", "Duke", null)), result);
+  }
+
+  @Test
+  void shouldFindSummariesByTitleAuthorOrIsbnPrefix() {
+    cut.saveAll(List.of(createBook("1234567891234"), createBook("9876543210123")));
+
+    assertEquals(2, cut.findSummariesByPrefix("java%", Limit.of(10)).size());
+    assertEquals(2, cut.findSummariesByPrefix("duke%", Limit.of(10)).size());
+    assertEquals(
+        List.of("9876543210123"),
+        cut.findSummariesByPrefix("98765%", Limit.of(10)).stream().map(BookSummary::isbn).toList());
+  }
+
+  @Test
+  void shouldFindAllBooksForRequestedIsbns() {
+    cut.saveAll(
+        List.of(
+            createBook("1234567891234"), createBook("1234567891235"), createBook("1234567891236")));
+
+    List<Book> result = cut.findByIsbnIn(List.of("1234567891234", "1234567891236", "42"));
+
+    assertEquals(2, result.size());
+  }
+
+  @Test
+  void shouldFindOldestSyncedAt() {
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    Book recentlySynced = createBook("1234567891234");
+    recentlySynced.setLastSyncedAt(now);
+    Book oldest = createBook("1234567891235");
+    oldest.setLastSyncedAt(now.minus(Duration.ofDays(60)));
+    cut.saveAll(List.of(recentlySynced, oldest));
+
+    assertEquals(oldest.getLastSyncedAt(), cut.findOldestSyncedAt().orElseThrow());
+  }
+
+  private Book createBook(String isbn) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle("Java " + isbn);
+    book.setAuthor("Duke");
+    book.setDescription("Good book");
+    return book;
+  }
+}
@@ -0,0 +1,145 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Asserts on the query plans and on the p95 latency of repeated searches against a catalog of a
+// million books, the plans are logged to explain a missed target.
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BookSearchPerformanceIT {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BookSearchPerformanceIT.class);
+
+  private static final int CATALOG_SIZE = 1_000_000;
+  private static final Duration MAX_P95_LATENCY = Duration.ofMillis(10);
+
+  @Container
+  static PostgreSQLContainer<?> database =
+      new PostgreSQLContainer<>("postgres:17.2")
+          .withDatabaseName("test")
+          .withUsername("duke")
+          .withPassword("s3cret");
+
+  @DynamicPropertySource
+  static void properties(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", database::getJdbcUrl);
+    registry.add("spring.datasource.password", database::getPassword);
+    registry.add("spring.datasource.username", database::getUsername);
+  }
+
+  @Autowired private BookRepository bookRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  static void seedCatalog() {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new DriverManagerDataSource(
+                database.getJdbcUrl(), database.getUsername(), database.getPassword()));
+
+    Flyway.configure()
+        .dataSource(database.getJdbcUrl(), database.getUsername(), database.getPassword())
+        .load()
+        .migrate();
+
+    jdbcTemplate.update(
+        "INSERT INTO books (title, isbn, author, genre, publisher) "
+            + "SELECT 'Book ' || md5(i::text), lpad(i::text, 13, '0'), 'Author ' || (i % 5000), "
+            + "'Genre ' || (i % 100), 'Publisher ' || (i % 500) "
+            + "FROM generate_series(1, ?) AS i",
+        CATALOG_SIZE);
+    jdbcTemplate.update(
+        "INSERT INTO books (title, isbn, author, genre, publisher) "
+            + "VALUES ('Head First Java', '9780596004651', 'Kathy Sierra', 'Java', 'OReilly')");
+    jdbcTemplate.execute("ANALYZE books");
+  }
+
+  @Test
+  void shouldFindSelectiveTermsThroughTheSearchIndex() {
+    List<Book> result = bookRepository.search("sierra java", PageRequest.of(0, 20));
+
+    assertEquals(List.of("9780596004651"), result.stream().map(Book::getIsbn).toList());
+    assertTrue(
+        explain("sierra java").stream()
+            .anyMatch(line -> line.contains("Bitmap Index Scan on books_search_vector_idx")));
+    assertLatency("sierra java");
+  }
+
+  @Test
+  void shouldRankBroadTermsWithABoundedSort() {
+    List<Book> result = bookRepository.search("book", PageRequest.of(0, 20));
+
+    assertEquals(20, result.size());
+    // a million rows match, the scan stops at the capped candidates that get ranked and sorted
+    String candidates = "rows=" + BookRepository.MAX_RANKED_MATCHES + " loops=";
+    assertTrue(
+        explain("book").stream()
+            .anyMatch(line -> line.contains("Limit") && line.contains(candidates)));
+    assertLatency("book");
+  }
+
+  private void assertLatency(String query) {
+    for (int i = 0; i < 20; i++) {
+      bookRepository.search(query, PageRequest.of(0, 20));
+    }
+
+    long[] durations = new long[100];
+    for (int i = 0; i < durations.length; i++) {
+      long start = System.nanoTime();
+      bookRepository.search(query, PageRequest.of(0, 20));
+      durations[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(durations);
+    Duration p95 = Duration.ofNanos(durations[durations.length * 95 / 100 - 1]);
+
+    LOG.info("p95 latency of search '{}': {} µs", query, p95.toNanos() / 1_000);
+    assertTrue(
+        p95.compareTo(MAX_P95_LATENCY) < 0,
+        () -> "p95 latency of search '" + query + "' was " + p95.toMillis() + " ms");
+  }
+
+  // the plan of the repository's own query, so it can't drift from what the application runs
+  private List<String> explain(String query) {
+    String sql;
+    try {
+      sql =
+          BookRepository.class
+              .getMethod("search", String.class, Pageable.class)
+              .getAnnotation(Query.class)
+              .value();
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+
+    List<String> plan =
+        jdbcTemplate.queryForList(
+            "EXPLAIN ANALYZE " + sql.replace(":query", "?") + " LIMIT 20", String.class, query);
+    LOG.info("Plan for search '{}':\n{}", query, String.join("\n", plan));
+    return plan;
+  }
+}
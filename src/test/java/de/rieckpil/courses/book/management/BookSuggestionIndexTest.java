@@ -0,0 +1,154 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookSuggestionIndexTest {
+
+  @Mock private BookRepository bookRepository;
+
+  private BookSuggestionIndex cut;
+
+  private static final BookSummary HEAD_FIRST_JAVA =
+      new BookSummary("9780596004651", "Head First Java", "Kathy Sierra", null);
+
+  private static final BookSummary JAVA_CONCURRENCY =
+      new BookSummary("9780321349606", "Java Concurrency in Practice", "Brian Goetz", null);
+
+  @BeforeEach
+  void setup() {
+    cut = new BookSuggestionIndex(bookRepository, 3, Duration.ZERO);
+    when(bookRepository.count()).thenReturn(2L);
+    when(bookRepository.findSummariesByOrderByIdAsc())
+        .thenReturn(List.of(HEAD_FIRST_JAVA, JAVA_CONCURRENCY));
+    cut.buildIndex();
+  }
+
+  @Test
+  void shouldSuggestBooksByTitleAuthorAndIsbnPrefix() {
+    assertEquals(List.of(JAVA_CONCURRENCY), cut.suggest("java", 10));
+    assertEquals(List.of(HEAD_FIRST_JAVA), cut.suggest("Kath", 10));
+    assertEquals(List.of(HEAD_FIRST_JAVA), cut.suggest("978059", 10));
+  }
+
+  @Test
+  void shouldIgnoreCaseAccentsAndPunctuation() {
+    assertEquals(List.of(HEAD_FIRST_JAVA), cut.suggest("  HÉAD-first ", 10));
+  }
+
+  @Test
+  void shouldLimitSuggestions() {
+    assertEquals(1, cut.suggest("9780", 1).size());
+    assertEquals(List.of(), cut.suggest("", 10));
+  }
+
+  @Test
+  void shouldUpdateIndexWhenBookIsStoredOrRemoved() {
+    Book book = new Book();
+    book.setIsbn(HEAD_FIRST_JAVA.isbn());
+    book.setTitle("Java Head First");
+    book.setAuthor("Kathy Sierra");
+
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(book, false));
+
+    assertEquals(List.of(), cut.suggest("head", 10));
+    assertEquals(2, cut.suggest("java", 10).size());
+
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(book, true));
+
+    assertEquals(List.of(JAVA_CONCURRENCY), cut.suggest("java", 10));
+    assertEquals(List.of(), cut.suggest("kathy", 10));
+  }
+
+  @Test
+  void shouldApplyChangesInOrderOfTheirEvents() {
+    cut = new BookSuggestionIndex(bookRepository, 4, Duration.ZERO);
+    cut.buildIndex();
+    Book effectiveJava = book("9780134685991", "Effective Java", "Joshua Bloch");
+    Book javaPuzzlers = book("9780321336781", "Java Puzzlers", "Joshua Bloch");
+
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(effectiveJava, false));
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(javaPuzzlers, false));
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(javaPuzzlers, true));
+
+    assertEquals(List.of(BookSummary.of(effectiveJava)), cut.suggest("joshua", 10));
+    assertEquals(List.of(), cut.suggest("puzzlers", 10));
+  }
+
+  @Test
+  void shouldAddAllBooksOfABatchAtOnce() {
+    cut = new BookSuggestionIndex(bookRepository, 4, Duration.ZERO);
+    cut.buildIndex();
+    Book effectiveJava = book("9780134685991", "Effective Java", "Joshua Bloch");
+    Book javaPuzzlers = book("9780321336781", "Java Puzzlers", "Joshua Bloch");
+
+    cut.onBookCatalogChanged(
+        new BookCatalogChangedEvent(List.of(javaPuzzlers, effectiveJava), false));
+
+    assertEquals(
+        Set.of(BookSummary.of(effectiveJava), BookSummary.of(javaPuzzlers)),
+        Set.copyOf(cut.suggest("joshua", 10)));
+    assertEquals(4, cut.suggest("978", 10).size());
+  }
+
+  @Test
+  void shouldQueryDatabaseOnceCatalogExceedsLimit() {
+    // no rebuild check within the test
+    cut = new BookSuggestionIndex(bookRepository, 3, Duration.ofHours(1));
+    cut.buildIndex();
+    cut.onBookCatalogChanged(
+        new BookCatalogChangedEvent(
+            book("9780134685991", "Effective Java", "Joshua Bloch"), false));
+    cut.onBookCatalogChanged(
+        new BookCatalogChangedEvent(book("9780321336781", "Java Puzzlers", "Joshua Bloch"), false));
+    when(bookRepository.findSummariesByPrefix("java%", Limit.of(10)))
+        .thenReturn(List.of(JAVA_CONCURRENCY));
+
+    assertEquals(List.of(JAVA_CONCURRENCY), cut.suggest("Java", 10));
+    assertEquals(List.of(JAVA_CONCURRENCY), cut.suggest("Java", 10));
+    verify(bookRepository, times(2)).findSummariesByPrefix("java%", Limit.of(10));
+  }
+
+  @Test
+  void shouldRebuildIndexOnceCatalogFitsAgain() {
+    Book effectiveJava = book("9780134685991", "Effective Java", "Joshua Bloch");
+    Book javaPuzzlers = book("9780321336781", "Java Puzzlers", "Joshua Bloch");
+    cut.onBookCatalogChanged(
+        new BookCatalogChangedEvent(List.of(effectiveJava, javaPuzzlers), false));
+
+    when(bookRepository.count()).thenReturn(3L);
+    when(bookRepository.findSummariesByOrderByIdAsc())
+        .thenReturn(List.of(HEAD_FIRST_JAVA, JAVA_CONCURRENCY, BookSummary.of(effectiveJava)));
+    cut.onBookCatalogChanged(new BookCatalogChangedEvent(javaPuzzlers, true));
+
+    await()
+        .untilAsserted(
+            () -> assertEquals(List.of(BookSummary.of(effectiveJava)), cut.suggest("joshua", 10)));
+    verify(bookRepository, never()).findSummariesByPrefix(any(), any());
+  }
+
+  private static Book book(String isbn, String title, String author) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setTitle(title);
+    book.setAuthor(author);
+    return book;
+  }
+}
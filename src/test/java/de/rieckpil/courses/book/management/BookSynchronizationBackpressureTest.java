@@ -0,0 +1,38 @@
+package de.rieckpil.courses.book.management;
+
+import io.awspring.cloud.sqs.listener.MessageListenerContainer;
+import io.awspring.cloud.sqs.listener.MessageListenerContainerRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BookSynchronizationBackpressureTest {
+
+  @Mock private MessageListenerContainerRegistry messageListenerContainerRegistry;
+
+  @Mock private MessageListenerContainer<Object> container;
+
+  @InjectMocks private BookSynchronizationBackpressure cut;
+
+  @Test
+  void shouldStopPollingWhileOpenAndResumeWhenHalfOpen() {
+    doReturn(container)
+        .when(messageListenerContainerRegistry)
+        .getContainerById(BookSynchronizationBackpressure.LISTENER_ID);
+
+    cut.onCircuitStateChanged(
+        new OpenLibraryCircuitStateChangedEvent(OpenLibraryCircuitBreaker.State.OPEN));
+    verify(container, timeout(1_000)).stop();
+
+    cut.onCircuitStateChanged(
+        new OpenLibraryCircuitStateChangedEvent(OpenLibraryCircuitBreaker.State.HALF_OPEN));
+    verify(container, timeout(1_000)).start();
+  }
+}
@@ -63,6 +63,8 @@ class BookSynchronizationListenerSliceNewTest {
 
   @MockBean private OpenLibraryApiClient openLibraryApiClient;
 
+  @MockBean private BookIsbnIndex bookIsbnIndex;
+
   @Test
   void shouldConsumeMessageWhenPayloadIsCorrect() {
     sqsTemplate.send(QUEUE_NAME, new BookSynchronization(ISBN));
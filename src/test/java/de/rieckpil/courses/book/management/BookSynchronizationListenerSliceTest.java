@@ -83,6 +83,8 @@ class BookSynchronizationListenerSliceTest {
 
   @MockBean private OpenLibraryApiClient openLibraryApiClient;
 
+  @MockBean private BookIsbnIndex bookIsbnIndex;
+
   @Test
   void shouldStartSQS() {
     assertNotNull(cut);
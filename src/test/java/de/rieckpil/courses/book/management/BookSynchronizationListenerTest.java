@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -17,6 +18,8 @@ class BookSynchronizationListenerTest {
 
   @Mock private OpenLibraryApiClient openLibraryApiClient;
 
+  @Mock private BookIsbnIndex bookIsbnIndex;
+
   @InjectMocks private BookSynchronizationListener cut;
 
   @Captor private ArgumentCaptor<Book> bookArgumentCaptor;
@@ -39,16 +42,27 @@ class BookSynchronizationListenerTest {
 
     verifyNoInteractions(openLibraryApiClient);
     verify(bookRepository, times(0)).save(ArgumentMatchers.any());
+    verify(bookRepository, times(0)).insertIfAbsent(ArgumentMatchers.any());
+  }
+
+  @Test
+  void shouldNotQueryDatabaseWhenIsbnIsIndexed() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(bookIsbnIndex.contains(VALID_ISBN)).thenReturn(true);
+
+    cut.consumeBookUpdates(bookSynchronization);
+
+    verifyNoInteractions(openLibraryApiClient, bookRepository);
   }
 
   @Test
   void shouldThrowExceptionWhenProcessingFails() {
     BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
     when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(null);
-    when(openLibraryApiClient.fetchMetadataForBook(VALID_ISBN))
-        .thenThrow(new RuntimeException("Network timeout"));
+    when(openLibraryApiClient.fetchMetadataForBookAsync(VALID_ISBN))
+        .thenReturn(Mono.error(new RuntimeException("Network timeout")));
 
-    assertThrows(RuntimeException.class, () -> cut.consumeBookUpdates(bookSynchronization));
+    assertThrows(RuntimeException.class, () -> cut.consumeBookUpdates(bookSynchronization).join());
   }
 
   @Test
@@ -61,21 +75,39 @@ class BookSynchronizationListenerTest {
     requestedBook.setTitle("Java book");
     requestedBook.setIsbn(VALID_ISBN);
 
-    when(openLibraryApiClient.fetchMetadataForBook(VALID_ISBN)).thenReturn(requestedBook);
-    when(bookRepository.save(ArgumentMatchers.any()))
+    when(openLibraryApiClient.fetchMetadataForBookAsync(VALID_ISBN))
+        .thenReturn(Mono.just(requestedBook));
+    when(bookRepository.insertIfAbsent(ArgumentMatchers.any()))
         .then(
             invocation -> {
               Book methodArgument = invocation.getArgument(0);
               methodArgument.setId(1L);
-              return methodArgument;
+              return true;
             });
 
-    cut.consumeBookUpdates(bookSynchronization);
+    cut.consumeBookUpdates(bookSynchronization).join();
 
-    verify(bookRepository).save(bookArgumentCaptor.capture());
+    verify(bookRepository).insertIfAbsent(bookArgumentCaptor.capture());
 
     Book methodArgument = bookArgumentCaptor.getValue();
     assertEquals("Java book", methodArgument.getTitle());
     assertEquals(VALID_ISBN, methodArgument.getIsbn());
   }
+
+  @Test
+  void shouldCompleteWhenBookWasStoredConcurrently() {
+    BookSynchronization bookSynchronization = new BookSynchronization(VALID_ISBN);
+    when(bookRepository.findByIsbn(VALID_ISBN)).thenReturn(null);
+
+    Book requestedBook = new Book();
+    requestedBook.setIsbn(VALID_ISBN);
+
+    when(openLibraryApiClient.fetchMetadataForBookAsync(VALID_ISBN))
+        .thenReturn(Mono.just(requestedBook));
+    when(bookRepository.insertIfAbsent(requestedBook)).thenReturn(false);
+
+    cut.consumeBookUpdates(bookSynchronization).join();
+
+    verify(bookRepository, times(0)).save(ArgumentMatchers.any());
+  }
 }
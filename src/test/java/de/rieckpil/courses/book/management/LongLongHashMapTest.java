@@ -0,0 +1,63 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongLongHashMapTest {
+
+  @Test
+  void shouldStoreOverwriteAndRemoveEntries() {
+    LongLongHashMap cut = new LongLongHashMap(0);
+
+    cut.put(9780596004651L, 1L);
+    cut.put(9780321349606L, 2L);
+    cut.put(9780596004651L, 3L);
+
+    assertEquals(2, cut.size());
+    assertEquals(3L, cut.get(9780596004651L));
+    assertEquals(2L, cut.get(9780321349606L));
+
+    cut.remove(9780596004651L);
+    cut.remove(42L);
+
+    assertEquals(1, cut.size());
+    assertEquals(LongLongHashMap.NO_VALUE, cut.get(9780596004651L));
+    assertEquals(2L, cut.get(9780321349606L));
+  }
+
+  @Test
+  void shouldRejectNonPositiveKeys() {
+    LongLongHashMap cut = new LongLongHashMap(0);
+
+    assertThrows(IllegalArgumentException.class, () -> cut.put(0L, 1L));
+  }
+
+  @Test
+  void shouldBehaveLikeAHashMapWhileGrowingAndShrinking() {
+    LongLongHashMap cut = new LongLongHashMap(0);
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(42);
+
+    for (int i = 0; i < 100_000; i++) {
+      long key = 9780000000000L + random.nextInt(20_000);
+      if (random.nextInt(3) == 0) {
+        cut.remove(key);
+        expected.remove(key);
+      } else {
+        cut.put(key, i);
+        expected.put(key, (long) i);
+      }
+    }
+
+    assertEquals(expected.size(), cut.size());
+    for (long key = 9780000000000L; key < 9780000020000L; key++) {
+      assertEquals(expected.getOrDefault(key, LongLongHashMap.NO_VALUE), cut.get(key));
+    }
+  }
+}
@@ -1,8 +1,13 @@
 package de.rieckpil.courses.book.management;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
@@ -12,8 +17,11 @@ import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,6 +31,10 @@ class OpenLibraryApiClientTest {
   private MockWebServer mockWebServer;
   private OpenLibraryApiClient cut;
 
+  @TempDir private Path cacheDirectory;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
   private static final String ISBN = "9780596004651";
 
   private static String VALID_RESPONSE;
@@ -60,7 +72,24 @@ class OpenLibraryApiClientTest {
             WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl(mockWebServer.url("/").toString())
-                .build());
+                .build(),
+            new OpenLibraryMetadataCache(
+                cacheDirectory,
+                Duration.ofDays(1),
+                DataSize.ofMegabytes(1),
+                new SimpleMeterRegistry()),
+            new OpenLibraryConcurrencyLimiter(
+                10, 1, 100, 200, 0.9, Duration.ofSeconds(5), new SimpleMeterRegistry()),
+            new OpenLibraryCircuitBreaker(
+                5, Duration.ofSeconds(30), event -> {}, new SimpleMeterRegistry()),
+            new OpenLibraryRetryPolicy(
+                2,
+                Duration.ofMillis(100),
+                Duration.ofSeconds(1),
+                10,
+                0.1,
+                new SimpleMeterRegistry()),
+            meterRegistry);
   }
 
   @AfterEach
@@ -151,6 +180,70 @@ class OpenLibraryApiClientTest {
     assertNull(result.getId());
   }
 
+  @Test
+  void shouldOnlyCallRemoteSystemOnceSubscribedWhenFetchingAsync() {
+    this.mockWebServer.enqueue(
+        new MockResponse()
+            .addHeader("Content-Type", "application/json; charset=utf-8")
+            .setBody(VALID_RESPONSE));
+
+    Mono<Book> result = cut.fetchMetadataForBookAsync(ISBN);
+
+    assertEquals(0, mockWebServer.getRequestCount());
+    assertEquals("Head first Java", result.toFuture().join().getTitle());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldServeRepeatedFetchesFromCache() {
+    this.mockWebServer.enqueue(
+        new MockResponse()
+            .addHeader("Content-Type", "application/json; charset=utf-8")
+            .setBody(VALID_RESPONSE));
+
+    Book first = cut.fetchMetadataForBook(ISBN);
+    List<Book> second = cut.fetchMetadataForBooks(List.of(ISBN));
+
+    assertEquals(first.getTitle(), second.get(0).getTitle());
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  void shouldShareOneRemoteCallBetweenConcurrentFetchesOfTheSameIsbn() {
+    this.mockWebServer.enqueue(
+        new MockResponse()
+            .addHeader("Content-Type", "application/json; charset=utf-8")
+            .setBody(VALID_RESPONSE)
+            .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+    CompletableFuture<Book> first = cut.fetchMetadataForBookAsync(ISBN).toFuture();
+    CompletableFuture<Book> second = cut.fetchMetadataForBookAsync(ISBN).toFuture();
+
+    assertNotSame(first.join(), second.join());
+    assertEquals(first.join().getTitle(), second.join().getTitle());
+    assertEquals(1, mockWebServer.getRequestCount());
+    assertEquals(
+        1.0, meterRegistry.counter("openlibrary.fetches.coalesced", "client", "webclient").count());
+  }
+
+  @Test
+  void shouldFetchAllRequestedBooksWithOneRequest() throws InterruptedException {
+    this.mockWebServer.enqueue(
+        new MockResponse()
+            .addHeader("Content-Type", "application/json; charset=utf-8")
+            .setBody(VALID_RESPONSE));
+
+    List<Book> result = cut.fetchMetadataForBooks(List.of(ISBN, "9780321160768"));
+
+    assertEquals(1, result.size());
+    assertEquals(ISBN, result.get(0).getIsbn());
+
+    RecordedRequest recordedRequest = this.mockWebServer.takeRequest();
+    assertEquals(
+        "/api/books?jscmd=data&format=json&bibkeys=" + ISBN + ",9780321160768",
+        recordedRequest.getPath());
+  }
+
   @Test
   void shouldPropagateExceptionWhenRemoteSystemIsDown() {
     assertThrows(
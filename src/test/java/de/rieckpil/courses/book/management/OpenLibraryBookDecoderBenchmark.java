@@ -0,0 +1,133 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Compares decoding a /api/books response via a JsonNode tree with the streaming decoder, run it
+// with the main method from the IDE or after test-compile, it is not part of the test suite.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenLibraryBookDecoderBenchmark {
+
+  private static final String STUB_ISBN = "9780596004651";
+
+  @Param({"1", "50"})
+  private int numberOfIsbns;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private List<String> isbns;
+  private byte[] response;
+  private Map<String, byte[]> cachedContents;
+
+  @Setup
+  public void setup() throws IOException {
+    String content =
+        new String(
+            getClass()
+                .getClassLoader()
+                .getResourceAsStream("stubs/openlibrary/success-" + STUB_ISBN + ".json")
+                .readAllBytes(),
+            StandardCharsets.UTF_8);
+    String book = objectMapper.readTree(content).get(STUB_ISBN).toString();
+
+    isbns = new ArrayList<>();
+    StringBuilder batchResponse = new StringBuilder("{");
+    for (int i = 0; i < numberOfIsbns; i++) {
+      String isbn = String.valueOf(9780596004000L + i);
+      isbns.add(isbn);
+      batchResponse.append(i == 0 ? "" : ",").append('"').append(isbn).append("\":").append(book);
+    }
+    response = batchResponse.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    cachedContents = OpenLibraryBookDecoder.splitByIsbn(response, isbns);
+  }
+
+  @Benchmark
+  public List<Book> tree() throws IOException {
+    JsonNode result = objectMapper.readTree(response);
+    List<Book> books = new ArrayList<>(isbns.size());
+    for (String isbn : isbns) {
+      books.add(convertToBook(isbn, result.get(isbn)));
+    }
+    return books;
+  }
+
+  @Benchmark
+  public List<Book> streaming() {
+    Map<String, byte[]> contents = OpenLibraryBookDecoder.splitByIsbn(response, isbns);
+    List<Book> books = new ArrayList<>(isbns.size());
+    for (String isbn : isbns) {
+      books.add(OpenLibraryBookDecoder.decode(isbn, contents.get(isbn)));
+    }
+    return books;
+  }
+
+  // cache hits skip the split and only decode the raw object of each ISBN
+  @Benchmark
+  public List<Book> streamingFromCache() {
+    List<Book> books = new ArrayList<>(isbns.size());
+    for (String isbn : isbns) {
+      books.add(OpenLibraryBookDecoder.decode(isbn, cachedContents.get(isbn)));
+    }
+    return books;
+  }
+
+  @Benchmark
+  public List<Book> treeFromCache() throws IOException {
+    List<Book> books = new ArrayList<>(isbns.size());
+    for (String isbn : isbns) {
+      books.add(convertToBook(isbn, objectMapper.readTree(cachedContents.get(isbn))));
+    }
+    return books;
+  }
+
+  // the mapping both clients used before the streaming decoder
+  private static Book convertToBook(String isbn, JsonNode content) {
+    Book book = new Book();
+    book.setIsbn(isbn);
+    book.setThumbnailUrl(content.get("cover").get("small").asText());
+    book.setTitle(content.get("title").asText());
+    book.setAuthor(content.get("authors").get(0).get("name").asText());
+    book.setPublisher(content.get("publishers").get(0).get("name").asText("n.A."));
+    book.setPages(content.get("number_of_pages").asLong(0));
+    book.setDescription(content.get("notes") == null ? "n.A" : content.get("notes").asText("n.A."));
+    book.setGenre(
+        content.get("subjects") == null
+            ? "n.A"
+            : content.get("subjects").get(0).get("name").asText("n.A."));
+    return book;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+            new OptionsBuilder()
+                .include(OpenLibraryBookDecoderBenchmark.class.getSimpleName())
+                .build())
+        .run();
+  }
+}
@@ -0,0 +1,101 @@
+package de.rieckpil.courses.book.management;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenLibraryBookDecoderTest {
+
+  private static final String ISBN = "9780596004651";
+
+  @Test
+  void shouldDecodeAllMappedFields() throws IOException {
+    byte[] response =
+        getClass()
+            .getClassLoader()
+            .getResourceAsStream("stubs/openlibrary/success-" + ISBN + ".json")
+            .readAllBytes();
+
+    Book result =
+        OpenLibraryBookDecoder.decode(
+            ISBN, OpenLibraryBookDecoder.splitByIsbn(response, List.of(ISBN)).get(ISBN));
+
+    assertEquals(ISBN, result.getIsbn());
+    assertEquals("Head first Java", result.getTitle());
+    assertEquals("https://covers.openlibrary.org/b/id/388761-S.jpg", result.getThumbnailUrl());
+    assertEquals("Kathy Sierra", result.getAuthor());
+    assertEquals("Java (Computer program language)", result.getGenre());
+    assertEquals("O'Reilly", result.getPublisher());
+    assertEquals(619, result.getPages());
+  }
+
+  @Test
+  void shouldOnlySplitRequestedIsbns() {
+    Map<String, byte[]> result =
+        OpenLibraryBookDecoder.splitByIsbn(
+            json(
+                """
+                {
+                  "1": {"title": "One", "excerpts": [{"text": "{not: a key}"}]},
+                  "2": {"title": "Two"},
+                  "3": []
+                }
+                """),
+            List.of("2", "3", "4"));
+
+    assertEquals(1, result.size());
+    assertEquals("Two", OpenLibraryBookDecoder.decode("2", result.get("2")).getTitle());
+  }
+
+  @Test
+  void shouldSkipUnmappedFieldsAndApplyDefaults() {
+    Book result =
+        OpenLibraryBookDecoder.decode(
+            ISBN,
+            json(
+                """
+                {
+                  "identifiers": {"title": ["Not the title"]},
+                  "title": "Head first Java",
+                  "authors": [{"url": "/authors/1", "name": "Kathy Sierra"}, {"name": "Bert Bates"}],
+                  "publishers": [{"name": null}],
+                  "number_of_pages": "42",
+                  "notes": null,
+                  "cover": {"large": "large.jpg", "small": "small.jpg"}
+                }
+                """));
+
+    assertEquals("Head first Java", result.getTitle());
+    assertEquals("Kathy Sierra", result.getAuthor());
+    assertEquals("small.jpg", result.getThumbnailUrl());
+    assertEquals("n.A.", result.getPublisher());
+    assertEquals("n.A.", result.getDescription());
+    assertEquals("n.A", result.getGenre());
+    assertEquals(42, result.getPages());
+  }
+
+  @Test
+  void shouldDefaultMissingTitles() {
+    assertEquals("n.A.", OpenLibraryBookDecoder.decode(ISBN, json("{}")).getTitle());
+    assertEquals("n.A.", OpenLibraryBookDecoder.decode(ISBN, json("{\"title\": null}")).getTitle());
+    assertEquals(
+        "n.A.", OpenLibraryBookDecoder.decode(ISBN, json("{\"title\": [\"x\"]}")).getTitle());
+  }
+
+  @Test
+  void shouldFailOnMalformedContent() {
+    assertThrows(
+        UncheckedIOException.class,
+        () -> OpenLibraryBookDecoder.decode(ISBN, json("{\"title\": ")));
+  }
+
+  private static byte[] json(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
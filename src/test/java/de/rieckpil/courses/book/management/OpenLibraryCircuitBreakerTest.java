@@ -0,0 +1,85 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import reactor.core.publisher.Mono;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OpenLibraryCircuitBreakerTest {
+
+  private final List<OpenLibraryCircuitBreaker.State> transitions = new CopyOnWriteArrayList<>();
+
+  private final OpenLibraryCircuitBreaker cut =
+      new OpenLibraryCircuitBreaker(
+          2,
+          Duration.ofMillis(200),
+          event -> transitions.add(((OpenLibraryCircuitStateChangedEvent) event).state()),
+          new SimpleMeterRegistry());
+
+  @Test
+  void shouldOpenAfterConsecutiveOverloadFailuresAndFailFast() {
+    failWith(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+    failWith(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+    assertEquals(OpenLibraryCircuitBreaker.State.OPEN, cut.getState());
+    assertThrows(
+        OpenLibraryUnavailableException.class, () -> cut.execute(Mono.just("book")).block());
+  }
+
+  @Test
+  void shouldIgnoreClientErrorsOfSingleIsbns() {
+    failWith(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+    failWith(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+    assertEquals(OpenLibraryCircuitBreaker.State.CLOSED, cut.getState());
+  }
+
+  @Test
+  void shouldNotResetFailuresForErrorsWithoutResponse() {
+    failWith(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+    failWith(new RejectedExecutionException("OpenLibrary request queue is full"));
+    failWith(new IllegalStateException("Exceeded limit on max bytes to buffer"));
+    failWith(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+    assertEquals(OpenLibraryCircuitBreaker.State.OPEN, cut.getState());
+  }
+
+  @Test
+  void shouldHalfOpenAfterOpenDurationAndCloseOnSuccessfulTrial() {
+    failWith(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS));
+    failWith(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS));
+
+    await()
+        .atMost(Duration.ofSeconds(2))
+        .until(() -> cut.getState() == OpenLibraryCircuitBreaker.State.HALF_OPEN);
+
+    assertEquals("book", cut.executeBlocking(() -> "book"));
+    assertEquals(
+        List.of(
+            OpenLibraryCircuitBreaker.State.OPEN,
+            OpenLibraryCircuitBreaker.State.HALF_OPEN,
+            OpenLibraryCircuitBreaker.State.CLOSED),
+        transitions);
+  }
+
+  private void failWith(RuntimeException exception) {
+    assertThrows(
+        exception.getClass(),
+        () ->
+            cut.executeBlocking(
+                () -> {
+                  throw exception;
+                }));
+  }
+}
@@ -0,0 +1,78 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenLibraryConcurrencyLimiterTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final OpenLibraryConcurrencyLimiter cut =
+      new OpenLibraryConcurrencyLimiter(2, 1, 4, 1, 0.5, Duration.ofSeconds(5), meterRegistry);
+
+  @Test
+  void shouldGrowLimitOnFastSuccessesUpToMaximum() {
+    for (int i = 0; i < 10; i++) {
+      Sinks.One<String> first = Sinks.one();
+      Sinks.One<String> second = Sinks.one();
+      CompletableFuture<String> firstCall = cut.execute(first.asMono()).toFuture();
+      CompletableFuture<String> secondCall = cut.execute(second.asMono()).toFuture();
+      first.tryEmitValue("first");
+      second.tryEmitValue("second");
+      firstCall.join();
+      secondCall.join();
+    }
+
+    assertEquals(4, cut.getLimit());
+    assertEquals(4.0, meterRegistry.get("openlibrary.concurrency.limit").gauge().value());
+  }
+
+  @Test
+  void shouldShrinkLimitOnOverload() {
+    Mono<String> tooManyRequests =
+        Mono.error(
+            WebClientResponseException.create(
+                HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests", null, null, null));
+
+    assertThrows(RuntimeException.class, () -> cut.execute(tooManyRequests).block());
+
+    assertEquals(1, cut.getLimit());
+  }
+
+  @Test
+  void shouldQueueCallsAboveLimitAndRejectOnceQueueIsFull() {
+    Sinks.One<String> first = Sinks.one();
+    Sinks.One<String> second = Sinks.one();
+
+    CompletableFuture<String> firstCall = cut.execute(first.asMono()).toFuture();
+    CompletableFuture<String> secondCall = cut.execute(second.asMono()).toFuture();
+    CompletableFuture<String> queuedCall = cut.execute(Mono.just("queued")).toFuture();
+
+    assertEquals(1, cut.getQueueDepth());
+    assertFalse(queuedCall.isDone());
+    assertThrows(RejectedExecutionException.class, () -> cut.execute(Mono.just("x")).block());
+    assertEquals(1.0, meterRegistry.get("openlibrary.concurrency.rejections").counter().count());
+
+    first.tryEmitValue("first");
+
+    assertEquals("queued", queuedCall.join());
+    assertEquals(0, cut.getQueueDepth());
+
+    second.tryEmitValue("second");
+    assertTrue(firstCall.isDone() && secondCall.isDone());
+    assertEquals(0, cut.getInFlight());
+  }
+}
@@ -0,0 +1,87 @@
+package de.rieckpil.courses.book.management;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenLibraryMetadataCacheTest {
+
+  private static final String ISBN = "9780596004651";
+
+  @TempDir private Path cacheDirectory;
+
+  @Test
+  void shouldKeepEntriesAcrossRestarts() throws Exception {
+    byte[] content = json("{\"title\":\"Head first Java\"}");
+
+    createCache(Duration.ofDays(1), DataSize.ofMegabytes(1)).put(ISBN, content);
+
+    assertArrayEquals(
+        content, createCache(Duration.ofDays(1), DataSize.ofMegabytes(1)).get(ISBN).orElseThrow());
+  }
+
+  @Test
+  void shouldIgnoreExpiredEntries() throws Exception {
+    OpenLibraryMetadataCache cut = createCache(Duration.ofHours(1), DataSize.ofMegabytes(1));
+    cut.put(ISBN, json("{\"title\":\"Head first Java\"}"));
+
+    try (Stream<Path> files = Files.walk(cacheDirectory)) {
+      for (Path file : files.filter(Files::isRegularFile).toList()) {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+      }
+    }
+
+    assertEquals(Optional.empty(), cut.get(ISBN));
+  }
+
+  @Test
+  void shouldEvictOldestEntriesWhenExceedingMaxSize() throws Exception {
+    OpenLibraryMetadataCache cut = createCache(Duration.ofDays(1), DataSize.ofBytes(1_000));
+    byte[] content = json("{\"title\":\"" + "x".repeat(200) + "\"}");
+
+    for (int i = 0; i < 10; i++) {
+      cut.put("978059600465" + i, content);
+      // make the insertion order visible independent of the file system's timestamp resolution
+      Files.setLastModifiedTime(
+          cacheDirectory.resolve("5" + i).resolve("978059600465" + i + ".json"),
+          FileTime.from(Instant.now().minusSeconds(10 - i)));
+    }
+
+    assertArrayEquals(content, cut.get("9780596004659").orElseThrow());
+    assertEquals(Optional.empty(), cut.get("9780596004650"));
+  }
+
+  @Test
+  void shouldNotCacheMalformedIsbns() throws Exception {
+    OpenLibraryMetadataCache cut = createCache(Duration.ofDays(1), DataSize.ofMegabytes(1));
+
+    cut.put("../../etc/passwd", json("{}"));
+
+    try (Stream<Path> files = Files.list(cacheDirectory)) {
+      assertTrue(files.findAny().isEmpty());
+    }
+  }
+
+  private OpenLibraryMetadataCache createCache(Duration timeToLive, DataSize maxSize) {
+    return new OpenLibraryMetadataCache(
+        cacheDirectory, timeToLive, maxSize, new SimpleMeterRegistry());
+  }
+
+  private static byte[] json(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -1,9 +1,13 @@
 package de.rieckpil.courses.book.management;
 
+import de.rieckpil.courses.config.HttpClientConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
@@ -16,12 +20,15 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 @RestClientTest(OpenLibraryRestTemplateApiClient.class)
+@Import({SimpleMeterRegistry.class, OpenLibraryCircuitBreaker.class, HttpClientConfig.class})
 class OpenLibraryRestTemplateApiClientTest {
 
   @Autowired private OpenLibraryRestTemplateApiClient cut;
 
   @Autowired private MockRestServiceServer mockRestServiceServer;
 
+  @MockBean private OpenLibraryMetadataCache metadataCache;
+
   private static final String ISBN = "9780596004651";
 
   @Test
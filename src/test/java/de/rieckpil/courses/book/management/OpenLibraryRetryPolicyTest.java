@@ -0,0 +1,82 @@
+package de.rieckpil.courses.book.management;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenLibraryRetryPolicyTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final OpenLibraryRetryPolicy cut =
+      new OpenLibraryRetryPolicy(
+          2, Duration.ofMillis(10), Duration.ofMillis(40), 3, 0.5, meterRegistry);
+
+  @Test
+  void shouldRetryServerErrorsUntilSuccess() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    Mono<String> call =
+        Mono.fromCallable(
+            () -> {
+              if (attempts.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+              }
+              return "book";
+            });
+
+    assertEquals("book", cut.execute(call).block());
+    assertEquals(3, attempts.get());
+    assertEquals(2.0, retries("attempted"));
+  }
+
+  @Test
+  void shouldNotRetryClientErrors() {
+    AtomicInteger attempts = new AtomicInteger();
+
+    Mono<String> call =
+        Mono.fromCallable(
+            () -> {
+              attempts.incrementAndGet();
+              throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            });
+
+    assertThrows(HttpClientErrorException.class, () -> cut.execute(call).block());
+    assertEquals(1, attempts.get());
+  }
+
+  @Test
+  void shouldSuppressRetriesOnceBudgetIsExhausted() {
+    Mono<String> call = Mono.error(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(HttpServerErrorException.class, () -> cut.execute(call).block());
+    }
+
+    assertEquals(3.0, retries("attempted"));
+    assertEquals(2.0, retries("suppressed"));
+    assertEquals(0.0, cut.getAvailableTokens());
+  }
+
+  @Test
+  void shouldDrawBackoffBetweenZeroAndExponentialCeiling() {
+    for (int i = 0; i < 100; i++) {
+      assertTrue(cut.backoff(0).compareTo(Duration.ofMillis(10)) <= 0);
+      assertTrue(cut.backoff(5).compareTo(Duration.ofMillis(40)) <= 0);
+    }
+  }
+
+  private double retries(String outcome) {
+    return meterRegistry.counter("openlibrary.retries", "outcome", outcome).count();
+  }
+}
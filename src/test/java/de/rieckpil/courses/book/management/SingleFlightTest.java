@@ -0,0 +1,60 @@
+package de.rieckpil.courses.book.management;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+  private final Counter coalescedCalls = new SimpleMeterRegistry().counter("coalesced");
+
+  private final SingleFlight<String> cut = new SingleFlight<>(coalescedCalls);
+
+  @Test
+  void shouldShareOutstandingCallForSameKey() {
+    CompletableFuture<String> remoteCall = new CompletableFuture<>();
+    AtomicInteger calls = new AtomicInteger();
+
+    CompletableFuture<String> first =
+        cut.execute("42", () -> remoteCall.thenApply(v -> v + calls.incrementAndGet()));
+    CompletableFuture<String> second =
+        cut.execute("42", () -> CompletableFuture.failedFuture(null));
+
+    assertSame(first, second);
+    assertEquals(1, cut.inFlightCalls());
+
+    remoteCall.complete("result-");
+
+    assertEquals("result-1", second.join());
+    assertEquals(1.0, coalescedCalls.count());
+    assertEquals(0, cut.inFlightCalls());
+  }
+
+  @Test
+  void shouldStartNewCallOnceThePreviousOneCompleted() {
+    assertEquals("first", cut.executeBlocking("42", () -> "first"));
+    assertEquals("second", cut.executeBlocking("42", () -> "second"));
+    assertEquals(0.0, coalescedCalls.count());
+  }
+
+  @Test
+  void shouldPropagateFailureToAllCallersAndForgetIt() {
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            cut.executeBlocking(
+                "42",
+                () -> {
+                  throw new IllegalStateException("OpenLibrary down");
+                }));
+
+    assertEquals(0, cut.inFlightCalls());
+  }
+}
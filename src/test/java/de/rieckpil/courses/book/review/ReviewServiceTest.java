@@ -1,6 +1,7 @@
 package de.rieckpil.courses.book.review;
 
 import de.rieckpil.courses.book.management.Book;
+import de.rieckpil.courses.book.management.BookIsbnIndex;
 import de.rieckpil.courses.book.management.BookRepository;
 import de.rieckpil.courses.book.management.User;
 import de.rieckpil.courses.book.management.UserService;
@@ -24,6 +25,8 @@ class ReviewServiceTest {
 
   @Mock private BookRepository bookRepository;
 
+  @Mock private BookIsbnIndex bookIsbnIndex;
+
   @Mock private ReviewRepository reviewRepository;
 
   @InjectMocks private ReviewService cut;